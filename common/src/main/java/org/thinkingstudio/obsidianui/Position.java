@@ -10,6 +10,7 @@
 
 package org.thinkingstudio.obsidianui;
 
+import org.jetbrains.annotations.Nullable;
 import org.thinkingstudio.obsidianui.widget.SpruceWidget;
 
 import java.util.Objects;
@@ -18,13 +19,14 @@ import java.util.Objects;
  * Represents a position.
  *
  * @author LambdAurora
- * @version 3.0.0
+ * @version 5.1.0
  * @since 1.4.0
  */
 public final class Position implements SprucePositioned {
 	private SprucePositioned anchor;
 	private int x = 0;
 	private int y = 0;
+	private @Nullable Runnable changedListener;
 
 	protected Position(SprucePositioned anchor) {
 		this.anchor = anchor;
@@ -75,7 +77,27 @@ public final class Position implements SprucePositioned {
 	 * @param anchor the anchor
 	 */
 	public void setAnchor(SprucePositioned anchor) {
-		this.anchor = anchor;
+		if (this.anchor != anchor) {
+			this.anchor = anchor;
+			this.onChanged();
+		}
+	}
+
+	/**
+	 * Sets the listener called when the anchor or the relative coordinates of this position change,
+	 * usually set by the parent indexing the bounds of its children.
+	 * <p>
+	 * Moving the anchor itself does not call the listener, as the coordinates relative to the anchor are unchanged.
+	 *
+	 * @param listener the listener, or {@code null} to remove it
+	 */
+	public void setChangedListener(@Nullable Runnable listener) {
+		this.changedListener = listener;
+	}
+
+	private void onChanged() {
+		if (this.changedListener != null)
+			this.changedListener.run();
 	}
 
 	@Override
@@ -109,7 +131,10 @@ public final class Position implements SprucePositioned {
 	 * @param x the relative X
 	 */
 	public void setRelativeX(int x) {
-		this.x = x;
+		if (this.x != x) {
+			this.x = x;
+			this.onChanged();
+		}
 	}
 
 	/**
@@ -127,7 +152,10 @@ public final class Position implements SprucePositioned {
 	 * @param y the relative Y
 	 */
 	public void setRelativeY(int y) {
-		this.y = y;
+		if (this.y != y) {
+			this.y = y;
+			this.onChanged();
+		}
 	}
 
 	/**
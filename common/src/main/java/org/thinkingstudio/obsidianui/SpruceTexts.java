@@ -51,6 +51,13 @@ public final class SpruceTexts {
 	 */
 	public static final Text GUI_NONE = Text.translatable("gui.none");
 
+	/**
+	 * Represents the hint of search boxes.
+	 *
+	 * @since 5.1.0
+	 */
+	public static final Text GUI_SEARCH_HINT = Text.translatable("gui.recipebook.search_hint");
+
 	/**
 	 * Represents the unbind action as text.
 	 *
@@ -59,10 +59,46 @@ public abstract class SpruceHandledScreen<T extends ScreenHandler> extends Handl
 		this.scaleFactor = this.client.getWindow().getScaleFactor();
 	}
 
+	@Override
+	protected void handledScreenTick() {
+		super.handledScreenTick();
+		for (var child : this.children()) {
+			if (child instanceof SpruceElement element)
+				element.tick();
+		}
+	}
+
+	@Override
+	public void removed() {
+		super.removed();
+		this.notifyChildrenRemoved();
+	}
+
+	@Override
+	protected void clearChildren() {
+		this.notifyChildrenRemoved();
+		super.clearChildren();
+	}
+
+	/**
+	 * Notifies the children of this screen that they are removed, so they can cancel their background work.
+	 */
+	private void notifyChildrenRemoved() {
+		for (var child : this.children()) {
+			if (child instanceof SpruceElement element)
+				element.onRemoved();
+		}
+	}
+
 	/* Input */
 
 	@Override
 	public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
+		// The focused element gets the escape key first, so it can cancel an operation instead of closing the screen.
+		var focused = this.getFocused();
+		if (keyCode == GLFW.GLFW_KEY_ESCAPE && focused != null && focused.keyPressed(keyCode, scanCode, modifiers))
+			return true;
+
 		return super.keyPressed(keyCode, scanCode, modifiers)
 				|| NavigationDirection.fromKey(keyCode, Screen.hasShiftDown())
 				.map(dir -> this.onNavigation(dir, keyCode == GLFW.GLFW_KEY_TAB))
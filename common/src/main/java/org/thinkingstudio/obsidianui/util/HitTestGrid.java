@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.util;
+
+import org.thinkingstudio.obsidianui.widget.SpruceWidget;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Represents a uniform grid index of the children of a free-form parent widget, used to find the children under the cursor
+ * without testing every child.
+ * <p>
+ * The grid is expressed relative to the parent, so moving the parent along with the children anchored to it
+ * keeps the grid valid. It is rebuilt lazily after {@link #invalidate()} is called, which the parent does when a child
+ * is moved relative to it or resized, or when the size of the parent or the number of children changes.
+ * If a child is anchored to another widget than the parent, the grid is also rebuilt when the parent moves.
+ * Children which compute their size on the fly, or whose anchor moves independently of the parent,
+ * require an explicit invalidation.
+ *
+ * @param <E> the type of children
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public final class HitTestGrid<E extends SpruceWidget> {
+	private static final int MAX_CELLS_PER_AXIS = 64;
+
+	private final int cellSize;
+	private boolean valid = false;
+	private int builtWidth;
+	private int builtHeight;
+	private int builtCount;
+	private int builtX;
+	private int builtY;
+	/**
+	 * Whether a child was anchored to another widget than the parent when the grid was built,
+	 * its bounds relative to the parent then change when the parent moves.
+	 */
+	private boolean detached;
+	private int cellWidth;
+	private int cellHeight;
+	private int columns;
+	private int rows;
+	/**
+	 * The start of each cell in {@link #cellItems}, the cell {@code c} holds the child indices
+	 * {@code cellItems[cellStarts[c]]} to {@code cellItems[cellStarts[c + 1] - 1]} in ascending order.
+	 */
+	private int[] cellStarts = new int[1];
+	private int[] cellItems = new int[0];
+
+	public HitTestGrid() {
+		this(32);
+	}
+
+	public HitTestGrid(int cellSize) {
+		if (cellSize <= 0)
+			throw new IllegalArgumentException("The cell size must be positive, got " + cellSize + ".");
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Marks this grid as outdated, it will be rebuilt on the next query.
+	 */
+	public void invalidate() {
+		this.valid = false;
+	}
+
+	/**
+	 * Returns the children which may be under the given coordinates, in the order of the children list.
+	 * <p>
+	 * If the coordinates are outside the parent, every child is returned.
+	 *
+	 * @param parent the parent widget
+	 * @param children the children of the parent
+	 * @param mouseX the mouse X-coordinate
+	 * @param mouseY the mouse Y-coordinate
+	 * @return the candidate children
+	 */
+	public Iterator<E> query(SpruceWidget parent, List<E> children, double mouseX, double mouseY) {
+		double x = mouseX - parent.getX();
+		double y = mouseY - parent.getY();
+		if (x < 0 || y < 0 || x >= parent.getWidth() || y >= parent.getHeight())
+			return children.iterator();
+
+		if (!this.valid || this.builtWidth != parent.getWidth() || this.builtHeight != parent.getHeight()
+				|| this.builtCount != children.size()
+				|| (this.detached && (this.builtX != parent.getX() || this.builtY != parent.getY())))
+			this.rebuild(parent, children);
+
+		int column = Math.min((int) x / this.cellWidth, this.columns - 1);
+		int row = Math.min((int) y / this.cellHeight, this.rows - 1);
+		int cell = row * this.columns + column;
+		return new CellIterator(children, this.cellStarts[cell], this.cellStarts[cell + 1]);
+	}
+
+	private void rebuild(SpruceWidget parent, List<E> children) {
+		int width = parent.getWidth();
+		int height = parent.getHeight();
+		this.builtWidth = width;
+		this.builtHeight = height;
+		this.builtCount = children.size();
+		this.builtX = parent.getX();
+		this.builtY = parent.getY();
+		this.detached = false;
+		this.cellWidth = Math.max(this.cellSize, ceilDiv(width, MAX_CELLS_PER_AXIS));
+		this.cellHeight = Math.max(this.cellSize, ceilDiv(height, MAX_CELLS_PER_AXIS));
+		this.columns = Math.max(1, ceilDiv(width, this.cellWidth));
+		this.rows = Math.max(1, ceilDiv(height, this.cellHeight));
+
+		int cells = this.columns * this.rows;
+		int size = children.size();
+		// The cell ranges of each child, 4 values per child: first column, first row, last column and last row.
+		var ranges = new int[size * 4];
+		var counts = new int[cells + 1];
+		for (int i = 0; i < size; i++) {
+			var child = children.get(i);
+			if (child.getPosition().getAnchor() != parent)
+				this.detached = true;
+			int left = child.getX() - parent.getX();
+			int top = child.getY() - parent.getY();
+			int right = Math.min(left + child.getWidth(), width) - 1;
+			int bottom = Math.min(top + child.getHeight(), height) - 1;
+			left = Math.max(left, 0);
+			top = Math.max(top, 0);
+
+			if (left > right || top > bottom) {
+				// Outside of the parent, the child cannot be hit through it.
+				ranges[i * 4] = 1;
+				ranges[i * 4 + 2] = 0;
+				continue;
+			}
+
+			ranges[i * 4] = left / this.cellWidth;
+			ranges[i * 4 + 1] = top / this.cellHeight;
+			ranges[i * 4 + 2] = right / this.cellWidth;
+			ranges[i * 4 + 3] = bottom / this.cellHeight;
+			for (int row = ranges[i * 4 + 1]; row <= ranges[i * 4 + 3]; row++) {
+				for (int column = ranges[i * 4]; column <= ranges[i * 4 + 2]; column++) {
+					counts[row * this.columns + column + 1]++;
+				}
+			}
+		}
+
+		for (int cell = 0; cell < cells; cell++) {
+			counts[cell + 1] += counts[cell];
+		}
+		this.cellStarts = counts.clone();
+		this.cellItems = new int[counts[cells]];
+		for (int i = 0; i < size; i++) {
+			for (int row = ranges[i * 4 + 1]; row <= ranges[i * 4 + 3]; row++) {
+				for (int column = ranges[i * 4]; column <= ranges[i * 4 + 2]; column++) {
+					this.cellItems[counts[row * this.columns + column]++] = i;
+				}
+			}
+		}
+
+		this.valid = true;
+	}
+
+	private static int ceilDiv(int x, int y) {
+		return (x + y - 1) / y;
+	}
+
+	private class CellIterator implements Iterator<E> {
+		private final List<E> children;
+		private final int end;
+		private int index;
+
+		CellIterator(List<E> children, int start, int end) {
+			this.children = children;
+			this.index = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.index < this.end;
+		}
+
+		@Override
+		public E next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+			return this.children.get(HitTestGrid.this.cellItems[this.index++]);
+		}
+	}
+}
@@ -10,9 +10,15 @@
 
 package org.thinkingstudio.obsidianui.util;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.text.OrderedText;
+import net.minecraft.text.Style;
+import net.minecraft.util.math.MathHelper;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -21,29 +27,81 @@ import java.util.function.Function;
 
 /**
  * Represents a multiline text.
+ * <p>
+ * The text is stored in a {@link TextRope}, and is exposed as rows wrapped to the width of the text.
+ * The last row of each line but the last one ends with {@code '\n'}, so the rows concatenated form the text.
+ * <p>
+ * Each line keeps its own layout, and the row counts of the lines are summed by the rope,
+ * so an edit only rewraps the lines it touches. A width change does not rewrap anything immediately,
+ * outdated lines keep their previous rows until {@link #wrapRows(int, int)} or {@link #wrapPending(long)} rewraps them.
  *
  * @author LambdAurora
- * @version 3.3.0
+ * @version 5.1.0
  * @since 1.6.3
  */
 public final class MultilineText {
-	private final List<String> rows = new ArrayList<>();
+	/**
+	 * The layout width of unwrapped lines.
+	 */
+	private static final int NO_WRAP = -1;
+	/**
+	 * Incremented whenever the fonts are reloaded, which invalidates the measured advances of every text.
+	 */
+	private static int fontsGeneration = 0;
+
+	private final List<String> rowsView = new RowsView();
+	/**
+	 * The location reused by the row lookups, which are only made on the client thread.
+	 */
+	private final TextRope.LineLocation location = new TextRope.LineLocation();
+	private TextRope text = TextRope.of("");
 	private int width;
+	/**
+	 * The index of the first line which may still be wrapped with an outdated width.
+	 */
+	private int pendingLine = 0;
+	private boolean wrapped = false;
+	/**
+	 * The advances of the characters of the basic multilingual plane, by pages of 256 characters allocated when needed.
+	 * Negative advances are not measured yet.
+	 */
+	private final float[][] charAdvances = new float[256][];
+	/**
+	 * The state of the fonts the advances were measured with, they are measured again once it changes.
+	 */
+	private int measuredFontsGeneration = fontsGeneration;
+	private @Nullable TextRenderer measuredRenderer;
+	private boolean measuredForceUnicode;
+	/**
+	 * Incremented whenever the advances are measured again, to lay out every line again.
+	 */
+	private int layoutGeneration = 0;
+	private @Nullable EditListener editListener;
+	private boolean wrapping = true;
+	private WrapMode wrapMode = WrapMode.CHARACTER;
 
 	public MultilineText(int width) {
 		this.width = width;
+		this.recompute();
 	}
 
 	public MultilineText(int width, @Nullable String text) {
-		this(width);
-		if (text == null)
-			return;
-		this.rows.addAll(wrap(text, width));
+		this.width = width;
+		this.setText(text == null ? "" : text);
 	}
 
 	public MultilineText(int width, Collection<? extends String> lines) {
-		this(width);
-		this.rows.addAll(wrap(lines, width));
+		this.width = width;
+		this.setLines(lines);
+	}
+
+	/**
+	 * Invalidates the measured advances of every multiline text, which are then rewrapped lazily.
+	 * <p>
+	 * Called once the fonts have been reloaded with the resources.
+	 */
+	public static void onFontsChanged() {
+		fontsGeneration++;
 	}
 
 	/**
@@ -57,38 +115,97 @@ public final class MultilineText {
 
 	/**
 	 * Sets the maximum width of the multiline text.
+	 * <p>
+	 * The lines are rewrapped lazily, see {@link #wrapRows(int, int)} and {@link #wrapPending(long)}.
 	 *
 	 * @param width the width
 	 */
 	public void setWidth(int width) {
 		if (this.width != width) {
 			this.width = width;
-			this.recompute();
+			if (this.wrapping) {
+				this.wrapped = false;
+				this.pendingLine = 0;
+			}
 		}
 	}
 
-	public List<String> getRows() {
-		return this.rows;
+	/**
+	 * Returns whether the lines are wrapped to the width of the multiline text.
+	 *
+	 * @return {@code true} if the lines are wrapped, or {@code false} if each line is a single row
+	 */
+	public boolean isWrapping() {
+		return this.wrapping;
 	}
 
-	public List<String> getLines() {
-		var lines = new ArrayList<String>();
+	/**
+	 * Returns where the lines are broken into rows.
+	 *
+	 * @return the wrap mode
+	 */
+	public WrapMode getWrapMode() {
+		return this.wrapMode;
+	}
 
-		var stringBuilder = new StringBuilder();
-		for (var row : this.rows) {
-			stringBuilder.append(row.replace("\n", ""));
-			if (row.endsWith("\n")) {
-				lines.add(stringBuilder.toString());
-				stringBuilder = new StringBuilder();
+	/**
+	 * Sets where the lines are broken into rows.
+	 * <p>
+	 * The lines are rewrapped lazily, see {@link #wrapRows(int, int)} and {@link #wrapPending(long)}.
+	 *
+	 * @param wrapMode the wrap mode
+	 */
+	public void setWrapMode(WrapMode wrapMode) {
+		if (this.wrapMode != wrapMode) {
+			this.wrapMode = wrapMode;
+			if (this.wrapping) {
+				this.wrapped = false;
+				this.pendingLine = 0;
 			}
 		}
+	}
 
-		return lines;
+	/**
+	 * Sets whether the lines are wrapped to the width of the multiline text.
+	 * <p>
+	 * Unwrapped lines are a single row each, whose columns are only measured as far as they are queried.
+	 * The lines are laid out again lazily, see {@link #wrapRows(int, int)} and {@link #wrapPending(long)}.
+	 *
+	 * @param wrapping {@code true} to wrap the lines, or {@code false} to keep each line on a single row
+	 */
+	public void setWrapping(boolean wrapping) {
+		if (this.wrapping != wrapping) {
+			this.wrapping = wrapping;
+			this.wrapped = false;
+			this.pendingLine = 0;
+		}
+	}
+
+	/**
+	 * Returns the rows of the text, every line is wrapped to the current width first.
+	 *
+	 * @return the rows
+	 */
+	public List<String> getRows() {
+		this.wrapPending(Long.MAX_VALUE);
+		return this.rowsView;
+	}
+
+	public List<String> getLines() {
+		return this.text.getLines();
 	}
 
 	public void setLines(Collection<? extends String> lines) {
-		this.clear();
-		this.addAll(wrap(lines, this.width));
+		this.setBuffer(TextRope.ofLines(new ArrayList<>(lines)));
+	}
+
+	/**
+	 * Returns the text buffer, which is an immutable snapshot of the current text.
+	 *
+	 * @return the text buffer
+	 */
+	public TextRope getBuffer() {
+		return this.text;
 	}
 
 	/**
@@ -97,10 +214,7 @@ public final class MultilineText {
 	 * @return The text.
 	 */
 	public String getText() {
-		var builder = new StringBuilder();
-		for (var row : this.rows)
-			builder.append(row);
-		return builder.toString();
+		return this.text.toString();
 	}
 
 	/**
@@ -109,84 +223,403 @@ public final class MultilineText {
 	 * @param text The text.
 	 */
 	public void setText(String text) {
-		this.clear();
-		this.add(text);
+		this.setBuffer(TextRope.of(text));
+	}
+
+	/**
+	 * Returns the length of the text.
+	 *
+	 * @return the length
+	 */
+	public int length() {
+		return this.text.length();
+	}
+
+	/**
+	 * Returns the text between the given offsets.
+	 *
+	 * @param start the start offset, inclusive
+	 * @param end the end offset, exclusive
+	 * @return the text
+	 */
+	public String substring(int start, int end) {
+		return this.text.substring(start, end);
+	}
+
+	/**
+	 * Replaces the text between the given offsets.
+	 * <p>
+	 * Only the lines produced by the replacement are wrapped, the rows of the other lines are left untouched.
+	 *
+	 * @param start the start offset, inclusive
+	 * @param end the end offset, exclusive
+	 * @param replacement the replacement text
+	 */
+	public void replace(int start, int end, String replacement) {
+		var old = this.text;
+		int firstLine = old.getLineAt(start);
+		int removedLines = old.getLineAt(end) - firstLine + 1;
+		this.text = old.replace(start, end, replacement);
+
+		int insertedLines = removedLines + this.text.getLineCount() - old.getLineCount();
+		for (int line = firstLine; line < firstLine + insertedLines; line++) {
+			this.wrapLine(line, this.text.getLine(line));
+		}
+
+		if (!this.wrapped)
+			this.pendingLine = Math.min(this.pendingLine, firstLine);
+		if (this.editListener != null) {
+			this.editListener.onTextReplaced(start, end - start, replacement.length());
+			this.editListener.onLinesReplaced(firstLine, removedLines, insertedLines);
+		}
+	}
+
+	/**
+	 * Returns the index of the line holding the given row.
+	 *
+	 * @param row the row
+	 * @return the line index
+	 */
+	public int getLineAtRow(int row) {
+		return this.text.getLineAtWeight(row);
+	}
+
+	/**
+	 * Returns the offset of the start of the given row.
+	 *
+	 * @param row the row, or the number of rows to get the length of the text
+	 * @return the offset
+	 */
+	public int getRowStart(int row) {
+		if (row >= this.size())
+			return this.length();
+
+		var location = this.text.locateWeight(row, this.location);
+		return location.start() + this.getLayout(location).rowStarts[row - location.weightBefore()];
+	}
+
+	/**
+	 * Returns the row containing the given offset.
+	 * <p>
+	 * An offset at the boundary of two wrapped rows belongs to the second row.
+	 *
+	 * @param offset the offset
+	 * @return the row
+	 */
+	public int getRowAt(int offset) {
+		var location = this.text.locateOffset(offset, this.location);
+		int column = offset - location.start();
+		var rowStarts = this.getLayout(location).rowStarts;
+
+		int low = 0;
+		int high = rowStarts.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (rowStarts[middle] <= column) low = middle;
+			else high = middle - 1;
+		}
+		return location.weightBefore() + low;
+	}
+
+	/**
+	 * Returns the X-coordinate of the given column of the given row, relative to the start of the row.
+	 *
+	 * @param row the row
+	 * @param column the column, clamped to the length of the row
+	 * @return the X-coordinate
+	 */
+	public int getColumnX(int row, int column) {
+		var location = this.text.locateWeight(row, this.location);
+		var layout = this.getLayout(location);
+		int rowInLine = row - location.weightBefore();
+		column = MathHelper.clamp(column, 0, layout.getRowLength(rowInLine));
+		return MathHelper.ceil(this.measure(layout, rowInLine, column)[column]);
+	}
+
+	/**
+	 * Returns the last column of the given row whose X-coordinate, relative to the start of the row,
+	 * does not exceed the given X-coordinate.
+	 *
+	 * @param row the row
+	 * @param x the X-coordinate
+	 * @return the column
+	 */
+	public int getColumnAt(int row, int x) {
+		var location = this.text.locateWeight(row, this.location);
+		var layout = this.getLayout(location);
+		int rowInLine = row - location.weightBefore();
+		var advances = layout.rowAdvances[rowInLine];
+		if (layout.line != null) {
+			// Unwrapped lines are only measured up to the given X-coordinate.
+			int length = layout.line.length();
+			while (layout.measured < length && advances[layout.measured] <= x) {
+				advances = this.measure(layout, rowInLine, Math.min(length, layout.measured * 2 + 64));
+			}
+		}
+
+		int low = 0;
+		int high = layout.line != null ? layout.measured : advances.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (advances[middle] <= x) low = middle;
+			else high = middle - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the length of the given row, without its line separator.
+	 *
+	 * @param row the row
+	 * @return the length
+	 */
+	public int getRowLength(int row) {
+		var location = this.text.locateWeight(row, this.location);
+		return this.getLayout(location).getRowLength(row - location.weightBefore());
+	}
+
+	/**
+	 * Returns the given row as text to render, without its line separator.
+	 * <p>
+	 * The text is cached until the line holding the row changes or is wrapped again.
+	 *
+	 * @param row the row
+	 * @return the text
+	 */
+	public OrderedText getRowText(int row) {
+		var location = this.text.locateWeight(row, this.location);
+		var layout = this.getLayout(location);
+		int rowInLine = row - location.weightBefore();
+
+		var rowText = layout.rowTexts[rowInLine];
+		if (rowText == null) {
+			int start = layout.rowStarts[rowInLine];
+			int end = start + layout.getRowLength(rowInLine);
+			rowText = OrderedText.styledForwardsVisitedString(location.line().text.substring(start, end), Style.EMPTY);
+			layout.rowTexts[rowInLine] = rowText;
+		}
+		return rowText;
+	}
+
+	/**
+	 * Returns the width of the given row.
+	 *
+	 * @param row the row
+	 * @return the width
+	 */
+	public int getRowWidth(int row) {
+		return this.getColumnX(row, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the advances of the given row, measured at least up to the given column.
+	 */
+	private float[] measure(LineLayout layout, int rowInLine, int column) {
+		var line = layout.line;
+		if (line == null || column <= layout.measured)
+			return layout.rowAdvances[rowInLine];
+
+		var advances = layout.rowAdvances[0];
+		if (advances.length <= column)
+			advances = layout.rowAdvances[0] = Arrays.copyOf(advances, Math.min(line.length(), Math.max(column, advances.length * 2)) + 1);
+
+		var client = MinecraftClient.getInstance();
+		for (int i = layout.measured; i < column; i++) {
+			char c = line.charAt(i);
+			float advance;
+			if (client == null || Character.isLowSurrogate(c) && i > 0 && Character.isHighSurrogate(line.charAt(i - 1))) {
+				// The whole advance of a surrogate pair is held by its high surrogate.
+				advance = 0;
+			} else {
+				advance = this.getAdvance(client, line.codePointAt(i));
+			}
+			advances[i + 1] = advances[i] + advance;
+		}
+		layout.measured = column;
+		return advances;
 	}
 
 	/**
 	 * Recomputes the lines wrapping.
 	 */
 	public void recompute() {
-		var text = this.getText();
-		this.clear();
-		this.add(text);
+		this.checkFonts();
+		var it = this.text.lineEntries(0);
+		for (int line = 0; it.hasNext(); line++) {
+			this.wrapLine(line, it.next().text);
+		}
+		this.wrapped = true;
+		this.pendingLine = 0;
+	}
+
+	/**
+	 * Returns whether every line is wrapped with the current width.
+	 *
+	 * @return {@code true} if every line is wrapped with the current width, else {@code false}
+	 */
+	public boolean isFullyWrapped() {
+		this.checkFonts();
+		return this.wrapped;
+	}
+
+	/**
+	 * Rewraps the outdated lines covering the given rows.
+	 * <p>
+	 * The rows of the lines after the first rewrapped one may shift.
+	 *
+	 * @param firstRow the first row
+	 * @param count the number of rows
+	 */
+	public void wrapRows(int firstRow, int count) {
+		this.checkFonts();
+		if (this.wrapped)
+			return;
+
+		firstRow = MathHelper.clamp(firstRow, 0, this.size() - 1);
+		int line = this.text.getLineAtWeight(firstRow);
+		int rows = this.text.getWeightBefore(line) - firstRow;
+		int lineCount = this.text.getLineCount();
+		for (; line < lineCount && rows < count; line++) {
+			if (this.isOutdated(this.text.getLineData(line)))
+				this.wrapLine(line, this.text.getLine(line));
+			rows += this.text.getLineWeight(line);
+		}
+	}
+
+	/**
+	 * Rewraps the outdated lines in order until the given time budget is exhausted.
+	 *
+	 * @param budgetNanos the time budget in nanoseconds
+	 * @return {@code true} if every line is wrapped with the current width, else {@code false}
+	 */
+	public boolean wrapPending(long budgetNanos) {
+		this.checkFonts();
+		if (this.wrapped)
+			return true;
+
+		long start = System.nanoTime();
+		var it = this.text.lineEntries(this.pendingLine);
+		for (int line = this.pendingLine; it.hasNext(); line++) {
+			var entry = it.next();
+			if (this.isOutdated(entry.data)) {
+				this.wrapLine(line, entry.text);
+				if (System.nanoTime() - start >= budgetNanos) {
+					this.pendingLine = line + 1;
+					return false;
+				}
+			}
+		}
+
+		this.wrapped = true;
+		this.pendingLine = 0;
+		return true;
 	}
 
 	public boolean isEmpty() {
-		return this.rows.isEmpty();
+		return this.text.isEmpty();
 	}
 
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return the number of rows, at least 1
+	 */
 	public int size() {
-		return this.rows.size();
+		return this.text.getTotalWeight();
 	}
 
 	public @Nullable String get(int row) {
-		return this.rows.get(row);
+		var location = this.text.locateWeight(row, this.location);
+		int rowInLine = row - location.weightBefore();
+		var lineText = location.line().text;
+		var rowStarts = this.getLayout(location).rowStarts;
+
+		int end = rowInLine + 1 < rowStarts.length ? rowStarts[rowInLine + 1] : lineText.length();
+		var rowText = lineText.substring(rowStarts[rowInLine], end);
+		if (rowInLine == rowStarts.length - 1 && location.start() + lineText.length() < this.length())
+			return rowText + "\n";
+		return rowText;
 	}
 
+	/**
+	 * Adds new lines at the end of the text.
+	 *
+	 * @param lines The lines to add.
+	 */
 	public void addAll(Collection<? extends String> lines) {
-		this.rows.addAll(lines);
+		if (lines.isEmpty())
+			return;
+		this.add(String.join("\n", lines));
 	}
 
 	/**
-	 * Adds a new line.
+	 * Adds a new line at the end of the text.
 	 *
 	 * @param line The line to add.
 	 */
 	public void add(String line) {
-		if (line.length() > 1)
-			this.rows.addAll(wrap(line, this.width));
-		else
-			this.rows.add(line);
+		int length = this.length();
+		this.replace(length, length, this.isEmpty() ? line : "\n" + line);
 	}
 
 	/**
 	 * Adds a new line at the specified row.
+	 * <p>
+	 * Since 5.1.0, the row is resolved to its offset in the text and the line is inserted there with its separator,
+	 * so the affected lines are rewrapped instead of the row being inserted as is.
 	 *
 	 * @param row The row.
 	 * @param line The line to add.
 	 */
 	public void add(int row, String line) {
-		this.rows.add(row, line);
+		if (row >= this.size()) {
+			this.add(line);
+			return;
+		}
+		int offset = this.getRowStart(row);
+		this.replace(offset, offset, line + "\n");
 	}
 
 	/**
-	 * Removes a line.
+	 * Removes a row.
+	 * <p>
+	 * Since 5.1.0, the text of the row is removed from the text, so the line it belonged to is rewrapped
+	 * and the following rows may shift by a different amount than one.
 	 *
 	 * @param row The row to remove.
-	 * @return The removed line content.
+	 * @return The removed row content.
 	 */
 	public @Nullable String remove(int row) {
-		if (row < 0 || row >= this.rows.size())
+		if (row < 0 || row >= this.size())
 			return null;
-		return this.rows.remove(row);
+		var removed = this.get(row);
+		int offset = this.getRowStart(row);
+		int end = offset + removed.length();
+		if (!removed.endsWith("\n") && row == this.size() - 1 && offset > 0 && this.get(row - 1).endsWith("\n")) {
+			// The last line is removed, its preceding separator goes with it.
+			offset--;
+		}
+		this.replace(offset, end, "");
+		return removed;
 	}
 
 	/**
-	 * Replaces the line.
+	 * Replaces the row.
+	 * <p>
+	 * Since 5.1.0, the text of the row is replaced in the text, so the new text may span several rows once rewrapped.
 	 *
-	 * @param row The row of the line.
+	 * @param row The row.
 	 * @param line The new text.
 	 */
 	public void replaceRow(int row, String line) {
-		if (row < 0 || row >= this.rows.size())
+		if (row < 0 || row >= this.size())
 			return;
-		this.remove(row);
-		this.rows.add(row, line);
+		int offset = this.getRowStart(row);
+		this.replace(offset, offset + this.get(row).length(), line);
 	}
 
 	public void replaceRow(int row, Function<String, String> replacer) {
-		if (row < 0 || row >= this.rows.size())
+		if (row < 0 || row >= this.size())
 			return;
 		var line = this.get(row);
 		this.replaceRow(row, replacer.apply(line));
@@ -196,18 +629,308 @@ public final class MultilineText {
 	 * Clears the text.
 	 */
 	public void clear() {
-		this.rows.clear();
+		this.setBuffer(TextRope.of(""));
+	}
+
+	/**
+	 * Sets the listener notified of the lines replaced by each edit.
+	 *
+	 * @param editListener the listener, or {@code null} to remove it
+	 */
+	public void setEditListener(@Nullable EditListener editListener) {
+		this.editListener = editListener;
+	}
+
+	private void setBuffer(TextRope text) {
+		int oldLength = this.text.length();
+		int oldLineCount = this.text.getLineCount();
+		this.text = text;
+		this.recompute();
+		if (this.editListener != null) {
+			this.editListener.onTextReplaced(0, oldLength, text.length());
+			this.editListener.onLinesReplaced(0, oldLineCount, text.getLineCount());
+		}
+	}
+
+	/**
+	 * Drops the measured advances and marks every line to rewrap if the fonts changed since they were measured,
+	 * either because the resources were reloaded or because the Force Unicode Font option was toggled.
+	 */
+	private void checkFonts() {
+		var client = MinecraftClient.getInstance();
+		if (client == null || client.textRenderer == null)
+			return;
+
+		boolean forceUnicode = client.options.getForceUnicodeFont().getValue();
+		if (this.measuredFontsGeneration != fontsGeneration || this.measuredRenderer != client.textRenderer
+				|| this.measuredForceUnicode != forceUnicode) {
+			boolean measured = this.measuredRenderer != null;
+			this.measuredFontsGeneration = fontsGeneration;
+			this.measuredRenderer = client.textRenderer;
+			this.measuredForceUnicode = forceUnicode;
+			if (measured) {
+				Arrays.fill(this.charAdvances, null);
+				this.layoutGeneration++;
+				this.wrapped = false;
+				this.pendingLine = 0;
+			}
+		}
+	}
+
+	private boolean isOutdated(@Nullable Object data) {
+		return !(data instanceof LineLayout layout) || layout.width != this.getLayoutWidth()
+				|| (this.wrapping && layout.wrapMode != this.wrapMode) || layout.generation != this.layoutGeneration;
+	}
+
+	private int getLayoutWidth() {
+		return this.wrapping ? this.width : NO_WRAP;
+	}
+
+	private LineLayout getLayout(TextRope.LineLocation location) {
+		if (location.line().data instanceof LineLayout layout)
+			return layout;
+		// Lines are wrapped as soon as they are created, this only happens for lines shared with another text.
+		return this.wrapLine(location.index(), location.line().text);
+	}
+
+	private LineLayout wrapLine(int line, String lineText) {
+		var layout = this.layoutLine(lineText);
+		this.text.setLineData(line, layout, layout.rowStarts.length);
+		return layout;
+	}
+
+	/**
+	 * Breaks the given line into rows, and measures the advance of each column of the rows.
+	 * <p>
+	 * The line is broken in a single pass, which accumulates the advances and remembers the last break opportunity.
+	 * In character mode, rows are broken like {@link net.minecraft.client.font.TextRenderer#trimToWidth(String, int)} would.
+	 * In word mode, rows are broken after the last whitespace or hyphen which fits, whitespace may hang past the width,
+	 * and words longer than a row are broken between characters. A row holds at least one code point.
+	 *
+	 * @param line the line, without line separator
+	 * @return the layout of the line
+	 */
+	private LineLayout layoutLine(String line) {
+		var client = MinecraftClient.getInstance();
+		int length = line.length();
+		if (!this.wrapping)
+			return new LineLayout(NO_WRAP, this.wrapMode, this.layoutGeneration, new int[]{0}, new float[][]{new float[Math.min(length, 64) + 1]}, line);
+		if (client == null || length == 0)
+			return new LineLayout(this.width, this.wrapMode, this.layoutGeneration, new int[]{0}, new float[][]{new float[length + 1]}, null);
+
+		boolean words = this.wrapMode == WrapMode.WORD;
+		// The advance of each char, the whole advance of a surrogate pair is held by its high surrogate
+		// so a column inside a pair is placed after it.
+		var advances = new float[length];
+		var starts = new IntArrayList();
+		starts.add(0);
+		float widthLeft = this.width;
+		int rowStart = 0;
+		int lastBreak = 0;
+		float sinceBreak = 0;
+		for (int i = 0; i < length; ) {
+			int codePoint = line.codePointAt(i);
+			float advance = this.getAdvance(client, codePoint);
+			boolean space = Character.isWhitespace(codePoint);
+			if (i > rowStart && widthLeft - advance < 0 && !(words && space)) {
+				if (words && lastBreak > rowStart) {
+					// The current word moves to the next row.
+					rowStart = lastBreak;
+					widthLeft = this.width - sinceBreak;
+					starts.add(rowStart);
+					if (rowStart < i && widthLeft - advance < 0) {
+						// The word is longer than a row.
+						rowStart = i;
+						widthLeft = this.width;
+						starts.add(rowStart);
+					}
+				} else {
+					rowStart = i;
+					widthLeft = this.width;
+					starts.add(rowStart);
+				}
+			}
+			widthLeft -= advance;
+			advances[i] = advance;
+			i += Character.charCount(codePoint);
+
+			if (space || codePoint == '-') {
+				lastBreak = i;
+				sinceBreak = 0;
+			} else {
+				sinceBreak += advance;
+			}
+		}
+
+		var rowStarts = starts.toIntArray();
+		var rowAdvances = new float[rowStarts.length][];
+		for (int row = 0; row < rowStarts.length; row++) {
+			int from = rowStarts[row];
+			int to = row + 1 < rowStarts.length ? rowStarts[row + 1] : length;
+			var cumulative = new float[to - from + 1];
+			for (int i = from; i < to; i++) {
+				cumulative[i - from + 1] = cumulative[i - from] + advances[i];
+			}
+			rowAdvances[row] = cumulative;
+		}
+		return new LineLayout(this.width, this.wrapMode, this.layoutGeneration, rowStarts, rowAdvances, null);
+	}
+
+	private float getAdvance(MinecraftClient client, int codePoint) {
+		if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT)
+			return client.textRenderer.getTextHandler().getWidth(Character.toString(codePoint));
+
+		var page = this.charAdvances[codePoint >> 8];
+		if (page == null) {
+			page = new float[256];
+			Arrays.fill(page, -1.f);
+			this.charAdvances[codePoint >> 8] = page;
+		}
+
+		float advance = page[codePoint & 0xff];
+		if (advance < 0) {
+			advance = client.textRenderer.getTextHandler().getWidth(Character.toString(codePoint));
+			page[codePoint & 0xff] = advance;
+		}
+		return advance;
+	}
+
+	/**
+	 * Represents the rows of a line wrapped with a given width.
+	 * <p>
+	 * An unwrapped line is a single row whose advances are measured lazily, up to {@link #measured}.
+	 */
+	private static final class LineLayout {
+		/**
+		 * The width the line was wrapped with, or {@link #NO_WRAP}.
+		 */
+		final int width;
+		/**
+		 * The wrap mode the line was wrapped with.
+		 */
+		final WrapMode wrapMode;
+		/**
+		 * The generation of the measured advances the line was laid out with.
+		 */
+		final int generation;
+		/**
+		 * The offsets of the start of each row in the line.
+		 */
+		final int[] rowStarts;
+		/**
+		 * The advance of each column of each row from the start of the row, the last one being the width of the row.
+		 */
+		final float[][] rowAdvances;
+		/**
+		 * The texts to render of each row, created when first rendered.
+		 */
+		final OrderedText[] rowTexts;
+		/**
+		 * The unwrapped line, or {@code null} if the line is wrapped.
+		 */
+		final @Nullable String line;
+		/**
+		 * The number of measured columns of the unwrapped line.
+		 */
+		int measured = 0;
+
+		LineLayout(int width, WrapMode wrapMode, int generation, int[] rowStarts, float[][] rowAdvances, @Nullable String line) {
+			this.width = width;
+			this.wrapMode = wrapMode;
+			this.generation = generation;
+			this.rowStarts = rowStarts;
+			this.rowAdvances = rowAdvances;
+			this.rowTexts = new OrderedText[rowStarts.length];
+			this.line = line;
+		}
+
+		int getRowLength(int rowInLine) {
+			return this.line != null ? this.line.length() : this.rowAdvances[rowInLine].length - 1;
+		}
+	}
+
+	/**
+	 * Represents a listener of the edits of a multiline text.
+	 */
+	@FunctionalInterface
+	public interface EditListener {
+		/**
+		 * Called after lines have been replaced.
+		 *
+		 * @param firstLine the index of the first replaced line
+		 * @param removedLines the number of lines which have been replaced
+		 * @param insertedLines the number of lines which replace them
+		 */
+		void onLinesReplaced(int firstLine, int removedLines, int insertedLines);
+
+		/**
+		 * Called after a range of the text has been replaced, before {@link #onLinesReplaced(int, int, int)}.
+		 *
+		 * @param start the start offset of the replaced range
+		 * @param removedLength the length of the replaced range
+		 * @param insertedLength the length of the replacement
+		 */
+		default void onTextReplaced(int start, int removedLength, int insertedLength) {
+		}
+	}
+
+	private class RowsView extends AbstractList<String> {
+		@Override
+		public String get(int index) {
+			return MultilineText.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return MultilineText.this.size();
+		}
 	}
 
 	public static Collection<? extends String> wrap(String text, int width) {
-		return wrap(Arrays.asList(text.split("\n")), width);
+		return wrap(text, width, WrapMode.CHARACTER);
+	}
+
+	/**
+	 * Wraps the given text to the given width.
+	 *
+	 * @param text the text, whose lines are separated by {@code '\n'}
+	 * @param width the width
+	 * @param wrapMode where the lines are broken into rows
+	 * @return the rows, the last row of each line ending with a line separator
+	 */
+	public static Collection<? extends String> wrap(String text, int width, WrapMode wrapMode) {
+		return wrap(Arrays.asList(text.split("\n")), width, wrapMode);
 	}
 
+	/**
+	 * Wraps the given lines to the given width, breaking rows between characters.
+	 *
+	 * @param text the lines
+	 * @param width the width
+	 * @return the rows, the last row of each line ending with a line separator
+	 * @see #wrap(Collection, int, WrapMode)
+	 */
 	public static Collection<? extends String> wrap(Collection<? extends String> text, int width) {
+		return wrap(text, width, WrapMode.CHARACTER);
+	}
+
+	/**
+	 * Wraps the given lines to the given width.
+	 * <p>
+	 * Each line is broken in a single pass, rows are only cut out of the line once their bounds are known.
+	 *
+	 * @param text the lines
+	 * @param width the width
+	 * @param wrapMode where the lines are broken into rows
+	 * @return the rows, the last row of each line ending with a line separator
+	 */
+	public static Collection<? extends String> wrap(Collection<? extends String> text, int width, WrapMode wrapMode) {
 		var client = MinecraftClient.getInstance();
 		if (client == null)
 			return text;
 
+		var wrapper = new MultilineText(width);
+		wrapper.setWrapMode(wrapMode);
 		var lines = new ArrayList<String>();
 
 		for (String line : text) {
@@ -217,15 +940,30 @@ public final class MultilineText {
 			}
 
 			if (line.endsWith("\n")) line = line.substring(0, line.length() - 1);
-			while (!line.isEmpty()) {
-				var part = client.textRenderer.trimToWidth(line, width);
-				line = line.substring(part.length());
-				lines.add(part);
+			var rowStarts = wrapper.layoutLine(line).rowStarts;
+			for (int row = 0; row + 1 < rowStarts.length; row++) {
+				lines.add(line.substring(rowStarts[row], rowStarts[row + 1]));
 			}
-			var part = lines.remove(lines.size() - 1);
-			lines.add(part + "\n");
+			lines.add(line.substring(rowStarts[rowStarts.length - 1]) + "\n");
 		}
 
 		return lines;
 	}
+
+	/**
+	 * Represents where lines are broken into rows.
+	 *
+	 * @version 5.1.0
+	 * @since 5.1.0
+	 */
+	public enum WrapMode {
+		/**
+		 * Rows are broken at the last character which fits.
+		 */
+		CHARACTER,
+		/**
+		 * Rows are broken between words, words longer than a row are broken at the last character which fits.
+		 */
+		WORD
+	}
 }
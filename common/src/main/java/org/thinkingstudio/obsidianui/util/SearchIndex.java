@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Represents a token and prefix index over documents made of short texts, used to filter lists.
+ * <p>
+ * Texts are split into lower-case tokens of letters and digits. A document matches a query
+ * if every token of the query is a prefix of one of the document tokens.
+ * <p>
+ * The result of the last query is kept, so a query which only extends the previous one is answered
+ * by narrowing the previous result instead of looking up the index again.
+ *
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public final class SearchIndex {
+	private final TreeMap<String, BitSet> postings = new TreeMap<>();
+	/**
+	 * The sorted distinct tokens of each document.
+	 */
+	private final List<String[]> documents = new ArrayList<>();
+	private @Nullable String[] lastTerms;
+	private @Nullable BitSet lastResult;
+
+	/**
+	 * Adds a document to this index.
+	 *
+	 * @param texts the texts of the document, {@code null} texts are ignored
+	 * @return the identifier of the document, which is the number of documents added before it
+	 */
+	public int add(@Nullable String... texts) {
+		int id = this.documents.size();
+		var tokens = new TreeSet<String>();
+		for (var text : texts) {
+			if (text != null)
+				tokenize(text, tokens);
+		}
+
+		for (var token : tokens) {
+			this.postings.computeIfAbsent(token, t -> new BitSet()).set(id);
+		}
+		this.documents.add(tokens.toArray(String[]::new));
+		this.lastTerms = null;
+		this.lastResult = null;
+		return id;
+	}
+
+	/**
+	 * Returns the number of documents in this index.
+	 *
+	 * @return the number of documents
+	 */
+	public int size() {
+		return this.documents.size();
+	}
+
+	/**
+	 * Returns whether the given document matches the given query.
+	 *
+	 * @param id the identifier of the document
+	 * @param query the query
+	 * @return {@code true} if the document matches, else {@code false}
+	 */
+	public boolean matches(int id, String query) {
+		var terms = new ArrayList<String>();
+		tokenize(query, terms);
+		return this.matches(this.documents.get(id), terms.toArray(String[]::new), 0);
+	}
+
+	/**
+	 * Searches the documents matching the given query.
+	 *
+	 * @param query the query
+	 * @return the identifiers of the matching documents, the returned set is owned by the caller
+	 */
+	public BitSet search(String query) {
+		var termList = new ArrayList<String>();
+		tokenize(query, termList);
+		var terms = termList.toArray(String[]::new);
+
+		BitSet result;
+		int from = this.lastResult == null ? -1 : firstChangedTerm(this.lastTerms, terms);
+		if (terms.length == 0) {
+			result = new BitSet(this.documents.size());
+			result.set(0, this.documents.size());
+		} else if (from >= 0 && this.lastTerms.length > 0) {
+			// Every term is at least as specific as before, only the previous matches need to be tested again.
+			result = (BitSet) this.lastResult.clone();
+			for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+				if (!this.matches(this.documents.get(id), terms, from))
+					result.clear(id);
+			}
+		} else {
+			result = this.lookup(terms[0]);
+			for (int i = 1; i < terms.length && !result.isEmpty(); i++) {
+				result.and(this.lookup(terms[i]));
+			}
+		}
+
+		this.lastTerms = terms;
+		this.lastResult = result;
+		return (BitSet) result.clone();
+	}
+
+	private BitSet lookup(String prefix) {
+		var result = new BitSet(this.documents.size());
+		for (var documents : this.postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+			result.or(documents);
+		}
+		return result;
+	}
+
+	private boolean matches(String[] tokens, String[] terms, int from) {
+		for (int i = from; i < terms.length; i++) {
+			int index = Arrays.binarySearch(tokens, terms[i]);
+			if (index < 0) {
+				index = -index - 1;
+				if (index == tokens.length || !tokens[index].startsWith(terms[i]))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the index of the first term which differs from the previous query, if the terms only refine the previous ones.
+	 *
+	 * @param previous the terms of the previous query
+	 * @param terms the terms of the new query
+	 * @return the index of the first changed term, or {@code -1} if the new query does not refine the previous one
+	 */
+	private static int firstChangedTerm(@Nullable String[] previous, String[] terms) {
+		if (previous == null || previous.length > terms.length)
+			return -1;
+		int changed = previous.length;
+		for (int i = previous.length - 1; i >= 0; i--) {
+			if (!terms[i].startsWith(previous[i]))
+				return -1;
+			if (!terms[i].equals(previous[i]))
+				changed = i;
+		}
+		return changed;
+	}
+
+	private static void tokenize(String text, Collection<String> tokens) {
+		int start = -1;
+		int length = text.length();
+		for (int i = 0; i <= length; i++) {
+			boolean tokenChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+			if (tokenChar && start == -1) {
+				start = i;
+			} else if (!tokenChar && start != -1) {
+				tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+	}
+}
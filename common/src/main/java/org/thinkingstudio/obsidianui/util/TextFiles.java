@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * Provides streaming reads and writes of UTF-8 text files.
+ *
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public final class TextFiles {
+	/**
+	 * The size of the buffer files are read through, in bytes.
+	 */
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private TextFiles() {
+		throw new UnsupportedOperationException("TextFiles only contains static definitions.");
+	}
+
+	/**
+	 * Opens the given file to decode it incrementally.
+	 * <p>
+	 * The file is streamed through a fixed-size buffer rather than memory-mapped, as a mapping keeps the file locked
+	 * on Windows until it is garbage collected, which would make saving to the same file fail.
+	 * The file is still kept open until it is fully read or the reader is closed.
+	 *
+	 * @param path the path of the file
+	 * @return the reader
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Reader read(Path path) throws IOException {
+		var channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("The file " + path + " is too large to be edited (" + size + " bytes).");
+			return new Reader(channel);
+		} catch (IOException | RuntimeException e) {
+			try {
+				channel.close();
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the given text to the given file.
+	 * <p>
+	 * The text is streamed line by line to a temporary file next to the target, which then replaces the target atomically,
+	 * so the target is never left partially written. The permissions and the ownership of an existing target are kept
+	 * where the file system supports them.
+	 *
+	 * @param text the text
+	 * @param path the path of the file
+	 * @param lineSeparator the line separator to write between lines
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(TextRope text, Path path, String lineSeparator) throws IOException {
+		var target = path.toAbsolutePath();
+		boolean exists = Files.exists(target);
+		if (exists) {
+			// Writes through symbolic links instead of replacing them.
+			target = target.toRealPath();
+		}
+		var temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+		try {
+			try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			     var writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+				var lines = text.lines(0);
+				while (lines.hasNext()) {
+					writer.write(lines.next());
+					if (lines.hasNext())
+						writer.write(lineSeparator);
+				}
+				writer.flush();
+				channel.force(false);
+			}
+
+			if (exists)
+				copyAttributes(target, temp);
+
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException | RuntimeException e) {
+			try {
+				Files.deleteIfExists(temp);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Copies the POSIX permissions, owner and group of the given file onto the other,
+	 * as the temporary file is created with owner-only permissions.
+	 *
+	 * @param source the file to copy the attributes from
+	 * @param target the file to copy the attributes to
+	 * @throws IOException if the permissions cannot be copied
+	 */
+	private static void copyAttributes(Path source, Path target) throws IOException {
+		var sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+		var targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+		if (sourceView == null || targetView == null)
+			return;
+
+		var attributes = sourceView.readAttributes();
+		try {
+			targetView.setGroup(attributes.group());
+		} catch (IOException ignored) {
+			// The user saving the file may not be a member of the group, the file then keeps the default group.
+		}
+		try {
+			targetView.setOwner(attributes.owner());
+		} catch (IOException ignored) {
+			// Changing the owner requires privileges, the file is then owned by the user saving it.
+		}
+		// Set last, as changing the ownership may clear some permission bits.
+		targetView.setPermissions(attributes.permissions());
+	}
+
+	/**
+	 * Represents an incremental decoder of a text file.
+	 * <p>
+	 * The text is produced in chunks of whole lines with {@code '\n'} line separators,
+	 * the line separator used by the file is remembered to write it back.
+	 * <p>
+	 * The file is closed once it has been fully read, it must be closed explicitly if the reading is abandoned.
+	 */
+	public static final class Reader implements Closeable {
+		private @Nullable FileChannel channel;
+		/**
+		 * The bytes read from the file which have not been decoded yet, in read mode.
+		 */
+		private @Nullable ByteBuffer bytes = ByteBuffer.allocateDirect(READ_BUFFER_SIZE).flip();
+		private boolean endOfFile = false;
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		/**
+		 * The decoded text which has not been returned yet, as it does not end with a line separator.
+		 */
+		private final StringBuilder pending = new StringBuilder();
+		private @Nullable String lineSeparator;
+		private boolean decoded = false;
+		private boolean done = false;
+
+		private Reader(FileChannel channel) throws IOException {
+			this.channel = channel;
+			var bytes = this.bytes;
+			while (bytes.remaining() < 3 && !this.endOfFile)
+				this.fill(bytes);
+			// Skips the byte order mark.
+			if (bytes.remaining() >= 3 && bytes.get(0) == (byte) 0xef && bytes.get(1) == (byte) 0xbb && bytes.get(2) == (byte) 0xbf)
+				bytes.position(3);
+		}
+
+		/**
+		 * Reads the next bytes of the file after the bytes which have not been decoded yet.
+		 */
+		private void fill(ByteBuffer bytes) throws IOException {
+			bytes.compact();
+			try {
+				if (this.channel.read(bytes) == -1)
+					this.endOfFile = true;
+			} finally {
+				bytes.flip();
+			}
+		}
+
+		/**
+		 * Decodes the next chunk of text.
+		 *
+		 * @param maxChars the maximum number of characters to decode
+		 * @return the decoded whole lines, including their trailing separators, or the end of the text once everything is decoded
+		 * @throws IOException if the file cannot be read, the reader is then closed
+		 */
+		public String read(int maxChars) throws IOException {
+			if (this.done)
+				return "";
+
+			// The pending text before the new characters has no line break, as it has been returned up to the last one.
+			int searchFrom = this.pending.length();
+			if (!this.decoded) {
+				var chars = CharBuffer.allocate(Math.max(maxChars, 2));
+				try {
+					this.decode(chars);
+				} catch (IOException | RuntimeException e) {
+					try {
+						this.close();
+					} catch (IOException suppressed) {
+						e.addSuppressed(suppressed);
+					}
+					throw e;
+				}
+				chars.flip();
+				this.pending.append(chars);
+			}
+
+			int end;
+			if (this.decoded) {
+				end = this.pending.length();
+			} else {
+				end = 0;
+				for (int i = this.pending.length() - 1; i >= searchFrom; i--) {
+					if (this.pending.charAt(i) == '\n') {
+						end = i + 1;
+						break;
+					}
+				}
+			}
+			if (end <= 0) {
+				this.done = this.decoded;
+				return "";
+			}
+
+			var chunk = new StringBuilder(end);
+			for (int i = 0; i < end; i++) {
+				char c = this.pending.charAt(i);
+				if (c == '\r' && i + 1 < this.pending.length() && this.pending.charAt(i + 1) == '\n') {
+					if (this.lineSeparator == null)
+						this.lineSeparator = "\r\n";
+					continue;
+				} else if (c == '\n' && this.lineSeparator == null) {
+					this.lineSeparator = "\n";
+				}
+				chunk.append(c);
+			}
+			this.pending.delete(0, end);
+			this.done = this.decoded;
+			return chunk.toString();
+		}
+
+		/**
+		 * Decodes the file into the given buffer until it is full or the whole file is decoded, which closes the file.
+		 */
+		private void decode(CharBuffer chars) throws IOException {
+			var bytes = this.bytes;
+			while (chars.hasRemaining()) {
+				if (!this.endOfFile)
+					this.fill(bytes);
+				var result = this.decoder.decode(bytes, chars, this.endOfFile);
+				if (result.isOverflow())
+					return;
+				if (this.endOfFile) {
+					if (this.decoder.flush(chars).isOverflow())
+						return;
+					this.close();
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Closes the file and releases the read buffer.
+		 * The text decoded so far is still returned by the next read, which ends the text.
+		 *
+		 * @throws IOException if the file cannot be closed
+		 */
+		@Override
+		public void close() throws IOException {
+			this.bytes = null;
+			this.decoded = true;
+			var channel = this.channel;
+			if (channel != null) {
+				this.channel = null;
+				channel.close();
+			}
+		}
+
+		/**
+		 * Returns whether the whole file has been read.
+		 *
+		 * @return {@code true} if the whole file has been read, else {@code false}
+		 */
+		public boolean isDone() {
+			return this.done;
+		}
+
+		/**
+		 * Returns the line separator used by the file.
+		 *
+		 * @return the line separator, {@code "\n"} if no line separator has been read yet
+		 */
+		public String getLineSeparator() {
+			return this.lineSeparator == null ? "\n" : this.lineSeparator;
+		}
+	}
+}
@@ -0,0 +1,765 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Represents an immutable text buffer stored as a balanced tree of lines.
+ * <p>
+ * The lines are kept in a treap ordered by line index, each node caching the line count and the length of its subtree,
+ * so lookups by line or by offset and edits are logarithmic in the number of lines.
+ * Edits return a new rope sharing all the untouched nodes with the previous one, which makes ropes cheap snapshots
+ * that can be read from other threads.
+ * <p>
+ * Offsets count the line separators, the text of a rope is its lines joined with {@code '\n'}.
+ * A rope always has at least one line, the empty rope has a single empty line.
+ * <p>
+ * Each line also has a weight, 1 by default, whose prefix sums are maintained by the tree.
+ * Weights hold measures derived from the lines, like the number of rows of a wrapped line,
+ * they are updated in place and are only meaningful on the latest rope of a chain of edits.
+ *
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public final class TextRope {
+	public static final TextRope EMPTY = new TextRope(new Node(new Line(""), 0, null, null));
+
+	private final Node root;
+
+	private TextRope(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * Creates a rope from the given text.
+	 *
+	 * @param text the text
+	 * @return the rope
+	 */
+	public static TextRope of(String text) {
+		// The lines are not shared with EMPTY, their data is mutable.
+		return new TextRope(build(splitLines(text)));
+	}
+
+	/**
+	 * Creates a rope from the given lines.
+	 *
+	 * @param lines the lines, which must not contain line separators
+	 * @return the rope
+	 */
+	public static TextRope ofLines(List<String> lines) {
+		if (lines.isEmpty())
+			return of("");
+		return new TextRope(build(lines));
+	}
+
+	/**
+	 * Returns the length of the text, line separators included.
+	 *
+	 * @return the length
+	 */
+	public int length() {
+		return this.root.length - 1;
+	}
+
+	public boolean isEmpty() {
+		return this.length() == 0;
+	}
+
+	/**
+	 * Returns the number of lines.
+	 *
+	 * @return the number of lines, at least 1
+	 */
+	public int getLineCount() {
+		return this.root.lineCount;
+	}
+
+	/**
+	 * Returns the given line, without its line separator.
+	 *
+	 * @param line the line index
+	 * @return the line
+	 */
+	public String getLine(int line) {
+		return this.getNode(line).line.text;
+	}
+
+	/**
+	 * Returns the offset of the start of the given line.
+	 *
+	 * @param line the line index, or the line count to get the length of the text plus one
+	 * @return the offset
+	 */
+	public int getLineStart(int line) {
+		if (line < 0 || line > this.getLineCount())
+			throw new IndexOutOfBoundsException("Line " + line + " out of bounds for line count " + this.getLineCount());
+
+		int offset = 0;
+		var node = this.root;
+		while (node != null) {
+			int leftCount = lineCount(node.left);
+			if (line <= leftCount) {
+				node = node.left;
+			} else {
+				offset += length(node.left) + node.line.text.length() + 1;
+				line -= leftCount + 1;
+				node = node.right;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Returns the offset of the end of the given line, before its line separator.
+	 *
+	 * @param line the line index
+	 * @return the offset
+	 */
+	public int getLineEnd(int line) {
+		return this.getLineStart(line) + this.getLine(line).length();
+	}
+
+	/**
+	 * Returns the index of the line containing the given offset.
+	 * <p>
+	 * The offset of a line separator belongs to the line it ends.
+	 *
+	 * @param offset the offset
+	 * @return the line index
+	 */
+	public int getLineAt(int offset) {
+		this.checkOffset(offset);
+
+		int line = 0;
+		var node = this.root;
+		while (true) {
+			int leftLength = length(node.left);
+			if (offset < leftLength) {
+				node = node.left;
+				continue;
+			}
+
+			offset -= leftLength;
+			line += lineCount(node.left);
+			int own = node.line.text.length() + 1;
+			if (offset < own || node.right == null)
+				return line;
+			offset -= own;
+			line++;
+			node = node.right;
+		}
+	}
+
+	/**
+	 * Returns the character at the given offset.
+	 *
+	 * @param offset the offset
+	 * @return the character
+	 */
+	public char charAt(int offset) {
+		if (offset < 0 || offset >= this.length())
+			throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for length " + this.length());
+		int line = this.getLineAt(offset);
+		int column = offset - this.getLineStart(line);
+		var text = this.getLine(line);
+		return column == text.length() ? '\n' : text.charAt(column);
+	}
+
+	/**
+	 * Returns the text between the given offsets.
+	 *
+	 * @param start the start offset, inclusive
+	 * @param end the end offset, exclusive
+	 * @return the text
+	 */
+	public String substring(int start, int end) {
+		this.checkRange(start, end);
+		if (start == end)
+			return "";
+
+		int firstLine = this.getLineAt(start);
+		int column = start - this.getLineStart(firstLine);
+		int remaining = end - start;
+
+		var builder = new StringBuilder(remaining);
+		var it = this.lines(firstLine);
+		while (remaining > 0) {
+			var line = it.next();
+			int count = Math.min(line.length() - column, remaining);
+			builder.append(line, column, column + count);
+			remaining -= count;
+			if (remaining > 0) {
+				builder.append('\n');
+				remaining--;
+			}
+			column = 0;
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Replaces the text between the given offsets.
+	 *
+	 * @param start the start offset, inclusive
+	 * @param end the end offset, exclusive
+	 * @param replacement the replacement text
+	 * @return the new rope
+	 */
+	public TextRope replace(int start, int end, String replacement) {
+		this.checkRange(start, end);
+		if (start == end && replacement.isEmpty())
+			return this;
+
+		int firstLine = this.getLineAt(start);
+		int lastLine = end == start ? firstLine : this.getLineAt(end);
+		var first = this.getLine(firstLine);
+		var last = lastLine == firstLine ? first : this.getLine(lastLine);
+		int firstStart = this.getLineStart(firstLine);
+		int lastStart = lastLine == firstLine ? firstStart : this.getLineStart(lastLine);
+
+		var merged = first.substring(0, start - firstStart) + replacement + last.substring(end - lastStart);
+
+		var parts = split(this.root, firstLine);
+		var rest = split(parts[1], lastLine - firstLine + 1);
+		return new TextRope(merge(merge(parts[0], build(splitLines(merged))), rest[1]));
+	}
+
+	public TextRope insert(int offset, String text) {
+		return this.replace(offset, offset, text);
+	}
+
+	public TextRope delete(int start, int end) {
+		return this.replace(start, end, "");
+	}
+
+	/**
+	 * Returns the lines of this rope.
+	 *
+	 * @return the lines
+	 */
+	public List<String> getLines() {
+		var lines = new ArrayList<String>(this.getLineCount());
+		this.lines(0).forEachRemaining(lines::add);
+		return lines;
+	}
+
+	/**
+	 * Returns an iterator over the lines of this rope, starting from the given line.
+	 *
+	 * @param from the index of the first line
+	 * @return the iterator
+	 */
+	public Iterator<String> lines(int from) {
+		var it = this.lineEntries(from);
+		return new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public String next() {
+				return it.next().text;
+			}
+		};
+	}
+
+	/**
+	 * Returns the sum of the weights of the lines.
+	 *
+	 * @return the total weight
+	 */
+	public int getTotalWeight() {
+		return this.root.weight;
+	}
+
+	/**
+	 * Returns the weight of the given line.
+	 *
+	 * @param line the line index
+	 * @return the weight
+	 */
+	public int getLineWeight(int line) {
+		return this.getNode(line).line.weight;
+	}
+
+	/**
+	 * Returns the sum of the weights of the lines before the given line.
+	 *
+	 * @param line the line index, or the line count to get the total weight
+	 * @return the sum of the weights
+	 */
+	public int getWeightBefore(int line) {
+		if (line < 0 || line > this.getLineCount())
+			throw new IndexOutOfBoundsException("Line " + line + " out of bounds for line count " + this.getLineCount());
+
+		int weight = 0;
+		var node = this.root;
+		while (node != null) {
+			int leftCount = lineCount(node.left);
+			if (line <= leftCount) {
+				node = node.left;
+			} else {
+				weight += weight(node.left) + node.line.weight;
+				line -= leftCount + 1;
+				node = node.right;
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * Returns the index of the line covering the given weight, a line of weight {@code w} whose preceding lines
+	 * weigh {@code p} covers the weights {@code p} to {@code p + w - 1}.
+	 *
+	 * @param weight the weight, between 0 and the total weight excluded
+	 * @return the line index
+	 */
+	public int getLineAtWeight(int weight) {
+		if (weight < 0 || weight >= this.getTotalWeight())
+			throw new IndexOutOfBoundsException("Weight " + weight + " out of bounds for total weight " + this.getTotalWeight());
+
+		int line = 0;
+		var node = this.root;
+		while (true) {
+			int leftWeight = weight(node.left);
+			if (weight < leftWeight) {
+				node = node.left;
+				continue;
+			}
+
+			weight -= leftWeight;
+			line += lineCount(node.left);
+			if (weight < node.line.weight || node.right == null)
+				return line;
+			weight -= node.line.weight;
+			line++;
+			node = node.right;
+		}
+	}
+
+	/**
+	 * Locates the line covering the given weight in a single descent of the tree.
+	 *
+	 * @param weight the weight, between 0 and the total weight excluded
+	 * @param location the location to fill, reused by the caller to avoid an allocation per lookup
+	 * @return the given location
+	 * @see #getLineAtWeight(int)
+	 */
+	LineLocation locateWeight(int weight, LineLocation location) {
+		if (weight < 0 || weight >= this.getTotalWeight())
+			throw new IndexOutOfBoundsException("Weight " + weight + " out of bounds for total weight " + this.getTotalWeight());
+
+		int line = 0;
+		int start = 0;
+		int weightBefore = 0;
+		var node = this.root;
+		while (true) {
+			int leftWeight = weight(node.left);
+			if (weight < leftWeight) {
+				node = node.left;
+				continue;
+			}
+
+			weight -= leftWeight;
+			line += lineCount(node.left);
+			start += length(node.left);
+			weightBefore += leftWeight;
+			if (weight < node.line.weight || node.right == null)
+				return location.set(line, start, weightBefore, node.line);
+			weight -= node.line.weight;
+			line++;
+			start += node.line.text.length() + 1;
+			weightBefore += node.line.weight;
+			node = node.right;
+		}
+	}
+
+	/**
+	 * Locates the line containing the given offset in a single descent of the tree.
+	 *
+	 * @param offset the offset
+	 * @param location the location to fill, reused by the caller to avoid an allocation per lookup
+	 * @return the given location
+	 * @see #getLineAt(int)
+	 */
+	LineLocation locateOffset(int offset, LineLocation location) {
+		this.checkOffset(offset);
+
+		int line = 0;
+		int start = 0;
+		int weightBefore = 0;
+		var node = this.root;
+		while (true) {
+			int leftLength = length(node.left);
+			if (offset < leftLength) {
+				node = node.left;
+				continue;
+			}
+
+			offset -= leftLength;
+			line += lineCount(node.left);
+			start += leftLength;
+			weightBefore += weight(node.left);
+			int own = node.line.text.length() + 1;
+			if (offset < own || node.right == null)
+				return location.set(line, start, weightBefore, node.line);
+			offset -= own;
+			line++;
+			start += own;
+			weightBefore += node.line.weight;
+			node = node.right;
+		}
+	}
+
+	/**
+	 * Sets the weight of the given line, and updates the sums of the weights in place.
+	 *
+	 * @param line the line index
+	 * @param weight the weight, must not be negative
+	 */
+	public void setLineWeight(int line, int weight) {
+		this.setLineData(line, this.getNode(line).line.data, weight);
+	}
+
+	/**
+	 * Returns the data attached to the given line.
+	 *
+	 * @param line the line index
+	 * @return the data, or {@code null} if none
+	 */
+	@Nullable Object getLineData(int line) {
+		return this.getNode(line).line.data;
+	}
+
+	/**
+	 * Attaches data to the given line and sets its weight.
+	 * <p>
+	 * The data and the weight follow the line across edits which do not touch it.
+	 *
+	 * @param line the line index
+	 * @param data the data
+	 * @param weight the weight, must not be negative
+	 */
+	void setLineData(int line, @Nullable Object data, int weight) {
+		if (line < 0 || line >= this.getLineCount())
+			throw new IndexOutOfBoundsException("Line " + line + " out of bounds for line count " + this.getLineCount());
+		if (weight < 0)
+			throw new IllegalArgumentException("The weight must not be negative, got " + weight + ".");
+
+		var path = new Node[64];
+		int depth = 0;
+		var node = this.root;
+		while (true) {
+			if (depth == path.length)
+				path = Arrays.copyOf(path, depth * 2);
+			path[depth++] = node;
+			int leftCount = lineCount(node.left);
+			if (line < leftCount) {
+				node = node.left;
+			} else if (line == leftCount) {
+				break;
+			} else {
+				line -= leftCount + 1;
+				node = node.right;
+			}
+		}
+
+		int delta = weight - node.line.weight;
+		node.line.data = data;
+		node.line.weight = weight;
+		if (delta != 0) {
+			for (int i = 0; i < depth; i++) {
+				path[i].weight += delta;
+			}
+		}
+	}
+
+	/**
+	 * Returns an iterator over the lines of this rope with their data, starting from the given line.
+	 *
+	 * @param from the index of the first line
+	 * @return the iterator
+	 */
+	Iterator<Line> lineEntries(int from) {
+		if (from < 0 || from > this.getLineCount())
+			throw new IndexOutOfBoundsException("Line " + from + " out of bounds for line count " + this.getLineCount());
+		return new LineIterator(this.root, from);
+	}
+
+	@Override
+	public String toString() {
+		return this.substring(0, this.length());
+	}
+
+	private Node getNode(int line) {
+		if (line < 0 || line >= this.getLineCount())
+			throw new IndexOutOfBoundsException("Line " + line + " out of bounds for line count " + this.getLineCount());
+
+		var node = this.root;
+		while (true) {
+			int leftCount = lineCount(node.left);
+			if (line < leftCount) {
+				node = node.left;
+			} else if (line == leftCount) {
+				return node;
+			} else {
+				line -= leftCount + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	private void checkOffset(int offset) {
+		if (offset < 0 || offset > this.length())
+			throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for length " + this.length());
+	}
+
+	private void checkRange(int start, int end) {
+		if (start < 0 || end < start || end > this.length())
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + this.length());
+	}
+
+	/**
+	 * Splits the given text into lines, a trailing separator produces a trailing empty line.
+	 *
+	 * @param text the text
+	 * @return the lines
+	 */
+	static List<String> splitLines(String text) {
+		var lines = new ArrayList<String>();
+		int start = 0;
+		int index;
+		while ((index = text.indexOf('\n', start)) != -1) {
+			lines.add(text.substring(start, index));
+			start = index + 1;
+		}
+		lines.add(text.substring(start));
+		return lines;
+	}
+
+	private static int lineCount(@Nullable Node node) {
+		return node == null ? 0 : node.lineCount;
+	}
+
+	private static int length(@Nullable Node node) {
+		return node == null ? 0 : node.length;
+	}
+
+	private static int weight(@Nullable Node node) {
+		return node == null ? 0 : node.weight;
+	}
+
+	/**
+	 * Splits the given tree into the first {@code count} lines and the remaining ones.
+	 */
+	private static @Nullable Node[] split(@Nullable Node node, int count) {
+		if (node == null)
+			return new Node[2];
+
+		int leftCount = lineCount(node.left);
+		if (count <= leftCount) {
+			var parts = split(node.left, count);
+			parts[1] = node.withChildren(parts[1], node.right);
+			return parts;
+		} else {
+			var parts = split(node.right, count - leftCount - 1);
+			parts[0] = node.withChildren(node.left, parts[0]);
+			return parts;
+		}
+	}
+
+	private static @Nullable Node merge(@Nullable Node left, @Nullable Node right) {
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+
+		if (left.priority > right.priority)
+			return left.withChildren(left.left, merge(left.right, right));
+		else
+			return right.withChildren(merge(left, right.left), right.right);
+	}
+
+	/**
+	 * Builds a tree from the given lines in linear time.
+	 */
+	private static Node build(List<String> lines) {
+		var random = ThreadLocalRandom.current();
+		var stack = new Builder[lines.size()];
+		int top = -1;
+		for (var line : lines) {
+			var builder = new Builder(new Line(line), random.nextInt());
+			Builder last = null;
+			while (top >= 0 && stack[top].priority < builder.priority) {
+				last = stack[top--];
+			}
+			builder.left = last;
+			if (top >= 0)
+				stack[top].right = builder;
+			stack[++top] = builder;
+		}
+		return stack[0].toNode();
+	}
+
+	/**
+	 * Represents a line found in a rope.
+	 * <p>
+	 * A location is mutable so a single instance can be reused for every lookup of its owner,
+	 * it is only valid until the next lookup.
+	 */
+	static final class LineLocation {
+		/**
+		 * The index of the line.
+		 */
+		private int index;
+		/**
+		 * The offset of the start of the line.
+		 */
+		private int start;
+		/**
+		 * The sum of the weights of the lines before the line.
+		 */
+		private int weightBefore;
+		private Line line;
+
+		LineLocation set(int index, int start, int weightBefore, Line line) {
+			this.index = index;
+			this.start = start;
+			this.weightBefore = weightBefore;
+			this.line = line;
+			return this;
+		}
+
+		int index() {
+			return this.index;
+		}
+
+		int start() {
+			return this.start;
+		}
+
+		int weightBefore() {
+			return this.weightBefore;
+		}
+
+		Line line() {
+			return this.line;
+		}
+	}
+
+	/**
+	 * Represents a line of a rope, shared by all the ropes containing it.
+	 */
+	static final class Line {
+		final String text;
+		int weight = 1;
+		@Nullable Object data;
+
+		Line(String text) {
+			this.text = text;
+		}
+	}
+
+	private static final class Node {
+		final Line line;
+		final int priority;
+		final @Nullable Node left;
+		final @Nullable Node right;
+		final int lineCount;
+		/**
+		 * The length of the lines of this subtree, each line counting its separator.
+		 */
+		final int length;
+		/**
+		 * The sum of the weights of the lines of this subtree, updated in place when a weight changes.
+		 */
+		int weight;
+
+		Node(Line line, int priority, @Nullable Node left, @Nullable Node right) {
+			this.line = line;
+			this.priority = priority;
+			this.left = left;
+			this.right = right;
+			this.lineCount = lineCount(left) + 1 + lineCount(right);
+			this.length = length(left) + line.text.length() + 1 + length(right);
+			this.weight = weight(left) + line.weight + weight(right);
+		}
+
+		Node withChildren(@Nullable Node left, @Nullable Node right) {
+			if (left == this.left && right == this.right)
+				return this;
+			return new Node(this.line, this.priority, left, right);
+		}
+	}
+
+	private static final class Builder {
+		final Line line;
+		final int priority;
+		Builder left;
+		Builder right;
+
+		Builder(Line line, int priority) {
+			this.line = line;
+			this.priority = priority;
+		}
+
+		Node toNode() {
+			return new Node(this.line, this.priority,
+					this.left == null ? null : this.left.toNode(),
+					this.right == null ? null : this.right.toNode());
+		}
+	}
+
+	private static final class LineIterator implements Iterator<Line> {
+		private final ArrayDeque<Node> stack = new ArrayDeque<>();
+
+		LineIterator(Node root, int from) {
+			var node = root;
+			while (node != null) {
+				int leftCount = lineCount(node.left);
+				if (from <= leftCount) {
+					this.stack.push(node);
+					node = from == leftCount ? null : node.left;
+				} else {
+					from -= leftCount + 1;
+					node = node.right;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !this.stack.isEmpty();
+		}
+
+		@Override
+		public Line next() {
+			if (this.stack.isEmpty())
+				throw new NoSuchElementException();
+			var node = this.stack.pop();
+			for (var child = node.right; child != null; child = child.left) {
+				this.stack.push(child);
+			}
+			return node.line;
+		}
+	}
+}
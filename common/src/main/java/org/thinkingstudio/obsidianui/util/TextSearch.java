@@ -0,0 +1,421 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a search query over a {@link TextRope}.
+ * <p>
+ * The text is searched line by line without ever being concatenated.
+ * Literal queries use the Boyer-Moore-Horspool algorithm and may span lines,
+ * regular expressions are matched against each line separately. Empty matches are ignored.
+ *
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public final class TextSearch {
+	/**
+	 * The number of lines searched between two checks of the cancellation.
+	 */
+	private static final int CANCELLATION_INTERVAL = 256;
+
+	private final @Nullable Pattern pattern;
+	/**
+	 * The lines of the literal query.
+	 */
+	private final String[] parts;
+	private final boolean ignoreCase;
+	/**
+	 * The Boyer-Moore-Horspool shifts of a single line literal query, indexed by the low byte of the characters.
+	 */
+	private final int[] shifts;
+
+	private TextSearch(@Nullable Pattern pattern, String query, boolean ignoreCase) {
+		this.pattern = pattern;
+		this.parts = query.split("\n", -1);
+		this.ignoreCase = ignoreCase;
+
+		if (pattern == null && this.parts.length == 1) {
+			int length = query.length();
+			this.shifts = new int[256];
+			Arrays.fill(this.shifts, Math.max(length, 1));
+			for (int i = 0; i < length - 1; i++) {
+				// Characters sharing a low byte keep the smallest shift, which is always safe.
+				this.shifts[this.fold(query.charAt(i)) & 0xff] = length - 1 - i;
+			}
+		} else {
+			this.shifts = new int[0];
+		}
+	}
+
+	/**
+	 * Creates a literal search.
+	 *
+	 * @param query the searched text, may contain {@code '\n'} to match across lines
+	 * @param ignoreCase {@code true} to ignore the case of the characters, else {@code false}
+	 * @return the search
+	 */
+	public static TextSearch literal(String query, boolean ignoreCase) {
+		return new TextSearch(null, query, ignoreCase);
+	}
+
+	/**
+	 * Creates a regular expression search, the expression is matched against each line separately.
+	 *
+	 * @param pattern the regular expression
+	 * @return the search
+	 */
+	public static TextSearch regex(Pattern pattern) {
+		return new TextSearch(pattern, pattern.pattern(), false);
+	}
+
+	/**
+	 * Finds the first match starting at or after the given offset.
+	 *
+	 * @param text the text to search
+	 * @param from the offset to search from
+	 * @return the match, or {@code null} if there is no match after the offset
+	 */
+	public @Nullable Match findNext(TextRope text, int from) {
+		var result = new Match[1];
+		this.scan(text, from, () -> false, (match, matcher) -> {
+			result[0] = match;
+			return false;
+		});
+		return result[0];
+	}
+
+	/**
+	 * Finds all the matches in the given text.
+	 *
+	 * @param text the text to search
+	 * @param cancelled the supplier of whether the search has been cancelled, checked regularly
+	 * @return the matches
+	 * @throws CancellationException if the search has been cancelled
+	 */
+	public Matches findAll(TextRope text, BooleanSupplier cancelled) {
+		var matches = new Matches(text);
+		this.scan(text, 0, cancelled, (match, matcher) -> {
+			matches.add(match.start, match.end);
+			return true;
+		});
+		return matches;
+	}
+
+	/**
+	 * Finds all the matches in the given text with the given executor.
+	 * <p>
+	 * Cancelling the returned future stops the search.
+	 *
+	 * @param text the text to search
+	 * @param executor the executor to search with
+	 * @return the future matches
+	 */
+	public CompletableFuture<Matches> findAllAsync(TextRope text, Executor executor) {
+		var future = new CompletableFuture<Matches>();
+		executor.execute(() -> {
+			try {
+				future.complete(this.findAll(text, future::isDone));
+			} catch (CancellationException e) {
+				// The future is already cancelled.
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Replaces all the matches in the given text.
+	 * <p>
+	 * The replacement is computed as a single edit covering the first to the last match, to be applied at once.
+	 * With regular expressions, {@code $n} and {@code ${name}} in the replacement refer to the captured groups.
+	 *
+	 * @param text the text
+	 * @param replacement the replacement of each match
+	 * @return the edit, or {@code null} if there is no match
+	 */
+	public @Nullable Replacement replaceAll(TextRope text, String replacement) {
+		var builder = new StringBuilder();
+		int[] state = {-1, -1, 0}; // The start of the first match, the end of the last match, the match count.
+		this.scan(text, 0, () -> false, (match, matcher) -> {
+			if (state[0] == -1) {
+				state[0] = match.start;
+			} else {
+				builder.append(text.substring(state[1], match.start));
+			}
+			if (matcher == null) {
+				builder.append(replacement);
+			} else {
+				expandReplacement(matcher, replacement, builder);
+			}
+			state[1] = match.end;
+			state[2]++;
+			return true;
+		});
+
+		if (state[2] == 0)
+			return null;
+		return new Replacement(state[0], state[1], builder.toString(), state[2]);
+	}
+
+	/**
+	 * Searches the text from the given offset.
+	 *
+	 * @param text the text
+	 * @param from the offset to search from
+	 * @param cancelled the supplier of whether the search has been cancelled
+	 * @param consumer the consumer of the matches, returns {@code false} to stop the search
+	 */
+	private void scan(TextRope text, int from, BooleanSupplier cancelled, MatchConsumer consumer) {
+		if (this.parts.length == 1 && this.parts[0].isEmpty())
+			return;
+
+		from = Math.max(0, Math.min(from, text.length()));
+		int lineCount = text.getLineCount();
+		int line = text.getLineAt(from);
+		int lineStart = text.getLineStart(line);
+		int column = from - lineStart;
+		var matcher = this.pattern == null ? null : this.pattern.matcher("");
+		var lines = text.lines(line);
+
+		while (line < lineCount) {
+			if (line % CANCELLATION_INTERVAL == 0 && cancelled.getAsBoolean())
+				throw new CancellationException();
+
+			var current = lines.next();
+			int lineEnd = lineStart + current.length();
+			int nextLine = line + 1;
+			int nextColumn = 0;
+
+			while (column <= current.length()) {
+				Match match;
+				if (matcher != null) {
+					match = this.findRegex(matcher, current, lineStart, column);
+				} else if (this.parts.length == 1) {
+					match = this.findLiteral(current, lineStart, column);
+				} else {
+					match = this.findLines(text, line, current, lineStart, column);
+				}
+
+				if (match == null)
+					break;
+				if (!consumer.accept(match, matcher))
+					return;
+
+				if (match.end > lineEnd) {
+					// The match spans several lines, the search continues from the line it ends on.
+					nextLine = text.getLineAt(match.end);
+					nextColumn = match.end - text.getLineStart(nextLine);
+					break;
+				}
+				column = match.end - lineStart;
+			}
+
+			for (int i = line + 1; i < nextLine; i++) {
+				lines.next();
+			}
+			lineStart = nextLine == line + 1 ? lineEnd + 1 : text.getLineStart(nextLine);
+			line = nextLine;
+			column = nextColumn;
+		}
+	}
+
+	private @Nullable Match findRegex(Matcher matcher, String line, int lineStart, int column) {
+		matcher.reset(line);
+		while (column <= line.length() && matcher.find(column)) {
+			if (matcher.end() > matcher.start())
+				return new Match(lineStart + matcher.start(), lineStart + matcher.end());
+			column = matcher.end() + 1;
+		}
+		return null;
+	}
+
+	private @Nullable Match findLiteral(String line, int lineStart, int column) {
+		var query = this.parts[0];
+		int last = query.length() - 1;
+		for (int i = column; i + last < line.length(); ) {
+			char c = this.fold(line.charAt(i + last));
+			int j = last;
+			while (j >= 0 && this.fold(line.charAt(i + j)) == this.fold(query.charAt(j))) {
+				j--;
+			}
+			if (j < 0)
+				return new Match(lineStart + i, lineStart + i + query.length());
+			i += this.shifts[c & 0xff];
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a literal query spanning several lines, which can only start at one column of the line.
+	 */
+	private @Nullable Match findLines(TextRope text, int line, String current, int lineStart, int column) {
+		var first = this.parts[0];
+		int start = current.length() - first.length();
+		int lastPart = this.parts.length - 1;
+		if (start < column || line + lastPart >= text.getLineCount()
+				|| !current.regionMatches(this.ignoreCase, start, first, 0, first.length()))
+			return null;
+
+		for (int i = 1; i < lastPart; i++) {
+			var other = text.getLine(line + i);
+			if (other.length() != this.parts[i].length() || !other.regionMatches(this.ignoreCase, 0, this.parts[i], 0, other.length()))
+				return null;
+		}
+
+		var last = this.parts[lastPart];
+		if (!text.getLine(line + lastPart).regionMatches(this.ignoreCase, 0, last, 0, last.length()))
+			return null;
+
+		int end = text.getLineStart(line + lastPart) + last.length();
+		return new Match(lineStart + start, end);
+	}
+
+	private char fold(char c) {
+		return this.ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+	}
+
+	/**
+	 * Appends the given replacement of the current match of the given matcher, with its group references expanded.
+	 */
+	private static void expandReplacement(Matcher matcher, String replacement, StringBuilder builder) {
+		for (int i = 0; i < replacement.length(); i++) {
+			char c = replacement.charAt(i);
+			if (c == '\\' && i + 1 < replacement.length()) {
+				builder.append(replacement.charAt(++i));
+			} else if (c == '$' && i + 1 < replacement.length()) {
+				String group;
+				if (replacement.charAt(i + 1) == '{') {
+					int end = replacement.indexOf('}', i + 2);
+					if (end == -1)
+						throw new IllegalArgumentException("Unclosed group name in the replacement \"" + replacement + "\".");
+					group = matcher.group(replacement.substring(i + 2, end));
+					i = end;
+				} else if (Character.isDigit(replacement.charAt(i + 1))) {
+					// Like Matcher, takes as many digits as form an existing group.
+					int index = replacement.charAt(++i) - '0';
+					while (i + 1 < replacement.length() && Character.isDigit(replacement.charAt(i + 1))) {
+						int next = index * 10 + replacement.charAt(i + 1) - '0';
+						if (next > matcher.groupCount())
+							break;
+						index = next;
+						i++;
+					}
+					group = matcher.group(index);
+				} else {
+					builder.append(c);
+					continue;
+				}
+				if (group != null)
+					builder.append(group);
+			} else {
+				builder.append(c);
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface MatchConsumer {
+		boolean accept(Match match, @Nullable Matcher matcher);
+	}
+
+	/**
+	 * Represents a match.
+	 *
+	 * @param start the start offset of the match, inclusive
+	 * @param end the end offset of the match, exclusive
+	 */
+	public record Match(int start, int end) {
+	}
+
+	/**
+	 * Represents a replacement of all the matches, as a single edit of the text.
+	 *
+	 * @param start the start offset of the replaced text, inclusive
+	 * @param end the end offset of the replaced text, exclusive
+	 * @param text the replacement text
+	 * @param count the number of replaced matches
+	 */
+	public record Replacement(int start, int end, String text, int count) {
+	}
+
+	/**
+	 * Represents all the matches in a text, in order.
+	 */
+	public static final class Matches {
+		private final TextRope text;
+		private int[] bounds = new int[32];
+		private int size = 0;
+
+		private Matches(TextRope text) {
+			this.text = text;
+		}
+
+		private void add(int start, int end) {
+			if (this.size * 2 == this.bounds.length)
+				this.bounds = Arrays.copyOf(this.bounds, this.bounds.length * 2);
+			this.bounds[this.size * 2] = start;
+			this.bounds[this.size * 2 + 1] = end;
+			this.size++;
+		}
+
+		/**
+		 * Returns the searched text.
+		 *
+		 * @return the text
+		 */
+		public TextRope getText() {
+			return this.text;
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		public int getStart(int index) {
+			return this.bounds[index * 2];
+		}
+
+		public int getEnd(int index) {
+			return this.bounds[index * 2 + 1];
+		}
+
+		/**
+		 * Returns the index of the first match ending after the given offset.
+		 *
+		 * @param offset the offset
+		 * @return the index of the match, or {@link #size()} if no match ends after the offset
+		 */
+		public int indexAfter(int offset) {
+			int low = 0;
+			int high = this.size;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (this.getEnd(middle) <= offset) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+	}
+}
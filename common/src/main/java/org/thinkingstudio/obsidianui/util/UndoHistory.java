@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Represents the undo and redo history of a text input.
+ * <p>
+ * Only the edits are recorded, as the offset they happen at with the removed and inserted texts, never whole snapshots of the text.
+ * Consecutive typing, erasing or forward removal of single characters is merged into one step,
+ * which is accumulated in place until the merging breaks.
+ * A step may also be made of several edits, for example one per cursor, which are undone and redone together.
+ * <p>
+ * The memory held by the history is capped by a budget in bytes, the oldest steps are dropped first when it is exceeded.
+ *
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public final class UndoHistory {
+	/**
+	 * The default memory budget of a history, in bytes.
+	 */
+	public static final long DEFAULT_BYTE_BUDGET = 4L * 1024 * 1024;
+	/**
+	 * The estimated memory taken by a step besides its characters, in bytes.
+	 */
+	private static final int EDIT_OVERHEAD = 64;
+
+	private final Deque<List<Edit>> undoStack = new ArrayDeque<>();
+	private final Deque<List<Edit>> redoStack = new ArrayDeque<>();
+	/**
+	 * The last step while it can still be merged with, not part of {@link #undoStack} yet.
+	 */
+	private @Nullable Run run;
+	private long byteBudget;
+	private long bytes = 0;
+	private boolean mergeable = false;
+
+	public UndoHistory() {
+		this(DEFAULT_BYTE_BUDGET);
+	}
+
+	public UndoHistory(long byteBudget) {
+		this.setByteBudget(byteBudget);
+	}
+
+	/**
+	 * Returns the memory budget of this history.
+	 *
+	 * @return the budget in bytes
+	 */
+	public long getByteBudget() {
+		return this.byteBudget;
+	}
+
+	/**
+	 * Sets the memory budget of this history, the oldest steps are dropped if the history does not fit anymore.
+	 *
+	 * @param byteBudget the budget in bytes
+	 */
+	public void setByteBudget(long byteBudget) {
+		if (byteBudget < 0)
+			throw new IllegalArgumentException("The byte budget must not be negative, got " + byteBudget + ".");
+		this.byteBudget = byteBudget;
+		this.trim();
+	}
+
+	/**
+	 * Returns the estimated memory taken by this history.
+	 *
+	 * @return the memory in bytes
+	 */
+	public long getByteSize() {
+		return this.bytes;
+	}
+
+	/**
+	 * Records an edit of the text, and clears the steps which could be redone.
+	 *
+	 * @param offset the offset of the edit
+	 * @param removed the removed text
+	 * @param inserted the inserted text
+	 */
+	public void record(int offset, String removed, String inserted) {
+		if (removed.isEmpty() && inserted.isEmpty())
+			return;
+
+		this.clearRedo();
+
+		var edit = new Edit(offset, removed, inserted);
+		boolean typing = edit.isTyping();
+		if (this.mergeable && this.run != null && this.run.merge(edit)) {
+			this.bytes += 2L * (removed.length() + inserted.length());
+			this.trim();
+			return;
+		}
+
+		this.seal();
+		if (edit.byteSize() > this.byteBudget) {
+			// The edit alone does not fit, nothing before it can be undone either.
+			this.clear();
+			return;
+		}
+
+		if (typing)
+			this.run = new Run(edit);
+		else
+			this.undoStack.addLast(List.of(edit));
+		this.bytes += edit.byteSize();
+		this.mergeable = typing;
+		this.trim();
+	}
+
+	/**
+	 * Records several edits of the text as a single step, and clears the steps which could be redone.
+	 * <p>
+	 * The edits are given in the order they have been applied, the offset of each edit being in the text
+	 * left by the previous ones. The step is never merged with.
+	 *
+	 * @param edits the edits
+	 */
+	public void recordAll(List<Edit> edits) {
+		if (edits.isEmpty())
+			return;
+		if (edits.size() == 1) {
+			var edit = edits.get(0);
+			this.breakMerging();
+			this.record(edit.offset(), edit.removed(), edit.inserted());
+			this.breakMerging();
+			return;
+		}
+
+		this.clearRedo();
+		this.seal();
+		this.mergeable = false;
+		var step = List.copyOf(edits);
+		long size = byteSize(step);
+		if (size > this.byteBudget) {
+			this.clear();
+			return;
+		}
+
+		this.undoStack.addLast(step);
+		this.bytes += size;
+		this.trim();
+	}
+
+	private void clearRedo() {
+		for (var step : this.redoStack) {
+			this.bytes -= byteSize(step);
+		}
+		this.redoStack.clear();
+	}
+	/**
+	 * Moves the step being merged into to the undo steps.
+	 */
+	private void seal() {
+		if (this.run != null) {
+			this.undoStack.addLast(List.of(this.run.toEdit()));
+			this.run = null;
+		}
+	}
+
+	/**
+	 * Prevents the next recorded edit from being merged into the last step, for example after the cursor moved.
+	 */
+	public void breakMerging() {
+		this.mergeable = false;
+	}
+
+	public boolean canUndo() {
+		return this.run != null || !this.undoStack.isEmpty();
+	}
+
+	public boolean canRedo() {
+		return !this.redoStack.isEmpty();
+	}
+
+	/**
+	 * Moves the last step to the redo steps.
+	 * <p>
+	 * The caller reverts each edit of the step in reverse order, by replacing {@link Edit#inserted()}
+	 * at {@link Edit#offset()} with {@link Edit#removed()}.
+	 *
+	 * @return the edits of the step to revert in the order they were applied, empty if there is nothing to undo
+	 */
+	public List<Edit> undo() {
+		this.seal();
+		var step = this.undoStack.pollLast();
+		this.mergeable = false;
+		if (step == null)
+			return List.of();
+		this.redoStack.addLast(step);
+		return step;
+	}
+
+	/**
+	 * Moves the last undone step back to the undo steps.
+	 * <p>
+	 * The caller applies each edit of the step again in order, by replacing {@link Edit#removed()}
+	 * at {@link Edit#offset()} with {@link Edit#inserted()}.
+	 *
+	 * @return the edits of the step to apply in order, empty if there is nothing to redo
+	 */
+	public List<Edit> redo() {
+		this.seal();
+		var step = this.redoStack.pollLast();
+		this.mergeable = false;
+		if (step == null)
+			return List.of();
+		this.undoStack.addLast(step);
+		return step;
+	}
+
+	/**
+	 * Clears this history.
+	 */
+	public void clear() {
+		this.undoStack.clear();
+		this.redoStack.clear();
+		this.run = null;
+		this.bytes = 0;
+		this.mergeable = false;
+	}
+
+	private void trim() {
+		while (this.bytes > this.byteBudget && !this.undoStack.isEmpty()) {
+			this.bytes -= byteSize(this.undoStack.pollFirst());
+		}
+		if (this.bytes > this.byteBudget && this.run != null) {
+			// The step being merged into has outgrown the budget by itself.
+			this.bytes -= this.run.byteSize();
+			this.run = null;
+		}
+		while (this.bytes > this.byteBudget && !this.redoStack.isEmpty()) {
+			this.bytes -= byteSize(this.redoStack.pollFirst());
+		}
+	}
+
+	private static long byteSize(List<Edit> step) {
+		long size = 0;
+		for (var edit : step) {
+			size += edit.byteSize();
+		}
+		return size;
+	}
+
+	/**
+	 * Represents an edit of the text.
+	 *
+	 * @param offset the offset of the edit
+	 * @param removed the removed text
+	 * @param inserted the inserted text
+	 */
+	public record Edit(int offset, String removed, String inserted) {
+		/**
+		 * Returns whether this edit types or erases a single character, in which case it can be followed by merged edits.
+		 */
+		boolean isTyping() {
+			return this.inserted.isEmpty() ? this.removed.length() == 1 : this.inserted.length() == 1 && this.inserted.charAt(0) != '\n';
+		}
+
+		long byteSize() {
+			return EDIT_OVERHEAD + 2L * (this.removed.length() + this.inserted.length());
+		}
+	}
+
+	/**
+	 * Represents a step being typed, erased or removed forward, accumulated in place.
+	 * <p>
+	 * Characters erased backward are prepended to the removed text, they are kept in reverse order until the step is sealed.
+	 */
+	private static final class Run {
+		private int offset;
+		private final StringBuilder erasedBackward = new StringBuilder();
+		private final StringBuilder removed;
+		private final StringBuilder inserted;
+
+		Run(Edit edit) {
+			this.offset = edit.offset();
+			this.removed = new StringBuilder(edit.removed());
+			this.inserted = new StringBuilder(edit.inserted());
+		}
+
+		/**
+		 * Merges the given edit, which directly follows this step, into this step if both are part of the same typing.
+		 *
+		 * @param next the following edit
+		 * @return {@code true} if the edit has been merged, else {@code false}
+		 */
+		boolean merge(Edit next) {
+			if (!next.isTyping())
+				return false;
+
+			if (next.removed().isEmpty() && !this.inserted.isEmpty() && next.offset() == this.offset + this.inserted.length()) {
+				// Typing.
+				this.inserted.append(next.inserted());
+				return true;
+			} else if (next.inserted().isEmpty() && this.inserted.isEmpty()) {
+				if (next.offset() + 1 == this.offset) {
+					// Erasing backward.
+					this.erasedBackward.append(next.removed());
+					this.offset = next.offset();
+					return true;
+				} else if (next.offset() == this.offset) {
+					// Removing forward.
+					this.removed.append(next.removed());
+					return true;
+				}
+			}
+			return false;
+		}
+
+		long byteSize() {
+			return EDIT_OVERHEAD + 2L * (this.erasedBackward.length() + this.removed.length() + this.inserted.length());
+		}
+
+		Edit toEdit() {
+			var removed = new StringBuilder(this.erasedBackward.length() + this.removed.length());
+			for (int i = this.erasedBackward.length() - 1; i >= 0; i--) {
+				removed.append(this.erasedBackward.charAt(i));
+			}
+			removed.append(this.removed);
+			return new Edit(this.offset, removed.toString(), this.inserted.toString());
+		}
+	}
+}
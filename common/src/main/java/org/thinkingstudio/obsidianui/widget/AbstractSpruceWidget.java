@@ -22,6 +22,9 @@ import org.jetbrains.annotations.Nullable;
 import org.thinkingstudio.obsidianui.Position;
 import org.thinkingstudio.obsidianui.navigation.NavigationDirection;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Represents a widget.
  *
@@ -41,6 +44,8 @@ public abstract class AbstractSpruceWidget implements SpruceWidget {
 	protected boolean wasHovered = false;
 	protected boolean dragging = false;
 	protected long lastDrag = 0L;
+	private @Nullable Runnable sizeChangedListener;
+	private @Nullable List<Runnable> removedListeners;
 
 	public AbstractSpruceWidget(Position position) {
 		this.position = position;
@@ -72,6 +77,75 @@ public abstract class AbstractSpruceWidget implements SpruceWidget {
 		return this.height;
 	}
 
+	/**
+	 * Sets the width of this widget.
+	 *
+	 * @param width the width
+	 * @see #onSizeChanged()
+	 */
+	protected void setWidth(int width) {
+		this.setSize(width, this.height);
+	}
+
+	/**
+	 * Sets the height of this widget.
+	 *
+	 * @param height the height
+	 * @see #onSizeChanged()
+	 */
+	protected void setHeight(int height) {
+		this.setSize(this.width, height);
+	}
+
+	/**
+	 * Sets the size of this widget, {@link #onSizeChanged()} is called if the size changed.
+	 *
+	 * @param width the width
+	 * @param height the height
+	 */
+	protected void setSize(int width, int height) {
+		if (this.width == width && this.height == height)
+			return;
+		this.width = width;
+		this.height = height;
+		this.onSizeChanged();
+	}
+
+	/**
+	 * Called when the size of this widget changes, notifies the size changed listener.
+	 */
+	protected void onSizeChanged() {
+		if (this.sizeChangedListener != null)
+			this.sizeChangedListener.run();
+	}
+
+	/**
+	 * Sets the listener called when the size of this widget changes, usually set by the parent caching the size of its children.
+	 *
+	 * @param listener the listener, or {@code null} to remove it
+	 */
+	public void setSizeChangedListener(@Nullable Runnable listener) {
+		this.sizeChangedListener = listener;
+	}
+
+	/**
+	 * Adds a listener called when this widget is removed from its screen, usually to cancel work tied to this widget.
+	 *
+	 * @param listener the listener
+	 * @see #onRemoved()
+	 */
+	public void addRemovedListener(Runnable listener) {
+		if (this.removedListeners == null)
+			this.removedListeners = new ArrayList<>();
+		this.removedListeners.add(listener);
+	}
+
+	@Override
+	public void onRemoved() {
+		if (this.removedListeners != null)
+			this.removedListeners.forEach(Runnable::run);
+	}
+
 	@Override
 	public boolean isActive() {
 		return this.active;
@@ -45,4 +45,19 @@ public interface SpruceElement extends Element {
 	default boolean requiresCursor() {
 		return false;
 	}
+
+	/**
+	 * Called every client tick while this element is part of the current screen, even if it is not rendered,
+	 * for example to make progress on work which is otherwise driven by rendering.
+	 */
+	default void tick() {
+	}
+
+	/**
+	 * Called when this element is removed from its screen, either because the screen is closed or because its widgets are rebuilt.
+	 * <p>
+	 * Background work of this element, such as pending loads, should be cancelled. May be called more than once.
+	 */
+	default void onRemoved() {
+	}
 }
@@ -98,8 +98,7 @@ public class SpruceLabelWidget extends AbstractSpruceWidget implements Tooltipab
 		} else {
 			this.position.setRelativeX(this.baseX);
 		}
-		this.width = width;
-		this.height = this.lines.size() * this.client.textRenderer.fontHeight + 2;
+		this.setSize(width, this.lines.size() * this.client.textRenderer.fontHeight + 2);
 	}
 
 	/**
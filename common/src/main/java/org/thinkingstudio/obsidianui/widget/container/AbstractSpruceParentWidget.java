@@ -66,6 +66,21 @@ public abstract class AbstractSpruceParentWidget<E extends SpruceWidget> extends
 		child.getPosition().setAnchor(this);
 	}
 
+	@Override
+	public void tick() {
+		for (var child : this.children()) {
+			child.tick();
+		}
+	}
+
+	@Override
+	public void onRemoved() {
+		super.onRemoved();
+		for (var child : this.children()) {
+			child.onRemoved();
+		}
+	}
+
 	/* Navigation */
 
 	@Override
@@ -81,7 +96,7 @@ public abstract class AbstractSpruceParentWidget<E extends SpruceWidget> extends
 
 	@Override
 	protected boolean onMouseClick(double mouseX, double mouseY, int button) {
-		var it = this.iterator();
+		var it = this.getHitTestCandidates(mouseX, mouseY);
 
 		E element;
 		do {
@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.widget.container;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Populates an entry list asynchronously, one page at a time.
+ * <p>
+ * Pages are produced off-thread by a {@link PageProvider}, one after the other, then handed to the client thread
+ * where each page replaces its placeholder entry in a single batch.
+ * If the provider knows its number of pages, a placeholder is shown for each page which is not loaded yet,
+ * otherwise a single placeholder is shown at the end of the list while the next page is being loaded.
+ * <p>
+ * The loader is cancelled when the list is removed from its screen, including when the screen is closed.
+ *
+ * @param <T> the type of the loaded items
+ * @param <E> the type of entry
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public final class PagedEntryLoader<T, E extends SpruceEntryListWidget.Entry> {
+	private final SpruceEntryListWidget<E> list;
+	private final PageProvider<T> provider;
+	private final Function<? super T, ? extends E> entryFactory;
+	private final Supplier<? extends E> placeholderFactory;
+	private final int pageSize;
+	private final Executor executor;
+	private @Nullable CompletableFuture<List<T>> pending;
+	/**
+	 * The placeholders of the pages which are not loaded yet, in page order.
+	 */
+	private final List<E> placeholders = new ArrayList<>();
+	private int pageCount = -1;
+	private @Nullable Throwable failure;
+	private int nextPage = 0;
+	private boolean started = false;
+	private boolean done = false;
+	private volatile boolean cancelled = false;
+
+	public PagedEntryLoader(SpruceEntryListWidget<E> list, int pageSize, PageProvider<T> provider,
+			Function<? super T, ? extends E> entryFactory, Supplier<? extends E> placeholderFactory) {
+		this(list, pageSize, provider, entryFactory, placeholderFactory, Util.getIoWorkerExecutor());
+	}
+
+	public PagedEntryLoader(SpruceEntryListWidget<E> list, int pageSize, PageProvider<T> provider,
+			Function<? super T, ? extends E> entryFactory, Supplier<? extends E> placeholderFactory, Executor executor) {
+		if (pageSize <= 0)
+			throw new IllegalArgumentException("The page size must be positive, got " + pageSize + ".");
+		this.list = list;
+		this.provider = provider;
+		this.entryFactory = entryFactory;
+		this.placeholderFactory = placeholderFactory;
+		this.pageSize = pageSize;
+		this.executor = executor;
+		list.addRemovedListener(this::cancel);
+	}
+
+	/**
+	 * Starts loading the pages. Must be called from the client thread.
+	 */
+	public void start() {
+		if (this.started)
+			return;
+		this.started = true;
+		if (this.cancelled)
+			return;
+
+		this.pageCount = this.provider.getPageCount();
+		if (this.pageCount == 0) {
+			this.done = true;
+			return;
+		}
+
+		int placeholders = Math.max(this.pageCount, 1);
+		this.list.beginBatch();
+		try {
+			for (int i = 0; i < placeholders; i++) {
+				this.placeholders.add(this.placeholderFactory.get());
+			}
+			this.list.addEntries(this.placeholders);
+		} finally {
+			this.list.endBatch();
+		}
+		this.requestNextPage();
+	}
+
+	/**
+	 * Cancels the outstanding loads and removes the placeholders. Pages which are still being produced are discarded once they complete.
+	 * <p>
+	 * Called automatically when the list is removed from its screen.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		if (this.pending != null) {
+			this.pending.cancel(false);
+			this.pending = null;
+		}
+		this.removePlaceholders();
+	}
+
+	/**
+	 * Returns whether a page is currently being loaded.
+	 *
+	 * @return {@code true} if a page is being loaded, else {@code false}
+	 */
+	public boolean isLoading() {
+		return this.pending != null;
+	}
+
+	/**
+	 * Returns whether all the pages have been loaded, or the loading failed.
+	 *
+	 * @return {@code true} if the loading is over, else {@code false}
+	 */
+	public boolean isDone() {
+		return this.done;
+	}
+
+	/**
+	 * Returns whether this loader has been cancelled.
+	 *
+	 * @return {@code true} if this loader has been cancelled, else {@code false}
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * Returns the error which stopped the loading, if any.
+	 *
+	 * @return the error, or {@code null} if none
+	 */
+	public @Nullable Throwable getFailure() {
+		return this.failure;
+	}
+
+	private void requestNextPage() {
+		int page = this.nextPage++;
+		var client = MinecraftClient.getInstance();
+		var future = CompletableFuture.supplyAsync(() -> {
+			if (this.cancelled)
+				return List.<T>of();
+			return this.provider.loadPage(page, this.pageSize);
+		}, this.executor);
+		this.pending = future;
+		future.whenComplete((items, error) -> client.execute(() -> this.onPageLoaded(future, items, error)));
+	}
+
+	private void onPageLoaded(CompletableFuture<List<T>> future, @Nullable List<T> items, @Nullable Throwable error) {
+		if (this.cancelled || this.pending != future)
+			return;
+		this.pending = null;
+
+		if (error != null) {
+			this.failure = error;
+			this.done = true;
+			this.removePlaceholders();
+			return;
+		}
+
+		var entries = new ArrayList<E>(items.size());
+		for (var item : items) {
+			entries.add(this.entryFactory.apply(item));
+		}
+
+		boolean last = items.size() < this.pageSize || (this.pageCount > 0 && this.nextPage >= this.pageCount);
+		this.list.beginBatch();
+		try {
+			var placeholder = this.placeholders.isEmpty() ? null : this.placeholders.remove(0);
+			int index = placeholder == null ? -1 : this.list.children().indexOf(placeholder);
+			if (index == -1) {
+				this.list.addEntries(entries);
+			} else {
+				this.list.removeEntry(placeholder);
+				this.list.children().addAll(index, entries);
+			}
+
+			if (last) {
+				this.removePlaceholders();
+			} else if (this.placeholders.isEmpty()) {
+				// The number of pages is unknown, the next page gets a placeholder at the end of the list.
+				this.placeholders.add(this.placeholderFactory.get());
+				this.list.addEntry(this.placeholders.get(0));
+			}
+		} finally {
+			this.list.endBatch();
+		}
+
+		if (last) {
+			this.done = true;
+		} else {
+			this.requestNextPage();
+		}
+	}
+
+	private void removePlaceholders() {
+		if (!this.placeholders.isEmpty()) {
+			this.list.removeEntries(this.placeholders);
+			this.placeholders.clear();
+		}
+	}
+
+	/**
+	 * Represents a provider of pages, called off the client thread.
+	 *
+	 * @param <T> the type of the items
+	 */
+	@FunctionalInterface
+	public interface PageProvider<T> {
+		/**
+		 * Loads the given page.
+		 * <p>
+		 * A page with fewer items than the page size marks the end of the data.
+		 *
+		 * @param page the index of the page
+		 * @param pageSize the maximum amount of items in the page
+		 * @return the items of the page
+		 */
+		List<T> loadPage(int page, int pageSize);
+
+		/**
+		 * Returns the number of pages, if it is known without loading them.
+		 * <p>
+		 * Called once on the client thread when the loader starts, a placeholder is then shown for each page.
+		 *
+		 * @return the number of pages, or {@code -1} if unknown
+		 */
+		default int getPageCount() {
+			return -1;
+		}
+	}
+}
@@ -15,11 +15,14 @@ import org.thinkingstudio.obsidianui.background.Background;
 import org.thinkingstudio.obsidianui.background.EmptyBackground;
 import org.thinkingstudio.obsidianui.border.Border;
 import org.thinkingstudio.obsidianui.border.EmptyBorder;
+import org.thinkingstudio.obsidianui.util.HitTestGrid;
+import org.thinkingstudio.obsidianui.widget.AbstractSpruceWidget;
 import org.thinkingstudio.obsidianui.widget.SpruceWidget;
 import org.thinkingstudio.obsidianui.widget.WithBackground;
 import org.thinkingstudio.obsidianui.widget.WithBorder;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
 import net.minecraft.client.gui.DrawContext;
@@ -28,11 +31,12 @@ import net.minecraft.client.gui.DrawContext;
  * Represents a container widget.
  *
  * @author LambdAurora
- * @version 5.0.0
+ * @version 5.1.0
  * @since 2.0.0
  */
 public class SpruceContainerWidget extends AbstractSpruceParentWidget<SpruceWidget> implements WithBackground, WithBorder {
 	private final List<SpruceWidget> children = new ArrayList<>();
+	private final HitTestGrid<SpruceWidget> hitTestGrid = new HitTestGrid<>();
 	private Background background = EmptyBackground.EMPTY_BACKGROUND;
 	private Border border = EmptyBorder.EMPTY_BORDER;
 
@@ -64,7 +68,12 @@ public class SpruceContainerWidget extends AbstractSpruceParentWidget<SpruceWidg
 
 	public void addChild(SpruceWidget child) {
 		this.setOwnerShip(child);
+		// Only this container indexes the child, so only its own grid is outdated when the child moves or is resized.
+		child.getPosition().setChangedListener(this::invalidateLayout);
+		if (child instanceof AbstractSpruceWidget widget)
+			widget.setSizeChangedListener(this::invalidateLayout);
 		this.children.add(child);
+		this.hitTestGrid.invalidate();
 	}
 
 	public void addChildren(ChildrenFactory childrenFactory) {
@@ -76,6 +85,22 @@ public class SpruceContainerWidget extends AbstractSpruceParentWidget<SpruceWidg
 		return this.children;
 	}
 
+	/**
+	 * Invalidates the hit-test index of this container.
+	 * <p>
+	 * Moving a child relative to this container or resizing it through {@code setSize} already invalidates it,
+	 * this is only needed for children which compute their size on the fly,
+	 * or which are anchored to another widget than this container and move with it.
+	 */
+	public void invalidateLayout() {
+		this.hitTestGrid.invalidate();
+	}
+
+	@Override
+	public Iterator<SpruceWidget> getHitTestCandidates(double mouseX, double mouseY) {
+		return this.hitTestGrid.query(this, this.children, mouseX, mouseY);
+	}
+
 	/* Rendering */
 
 	@Override
@@ -35,8 +35,14 @@ import org.thinkingstudio.obsidianui.widget.WithBackground;
 import org.thinkingstudio.obsidianui.widget.WithBorder;
 
 import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Predicate;
 
 import static net.minecraft.client.gui.screen.Screen.HEADER_SEPARATOR_TEXTURE;
 import static net.minecraft.client.gui.screen.Screen.FOOTER_SEPARATOR_TEXTURE;
@@ -54,7 +60,7 @@ import static net.minecraft.client.gui.screen.Screen.INWORLD_FOOTER_SEPARATOR_TE
 public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entry> extends AbstractSpruceParentWidget<E>
 		implements WithBackground, WithBorder {
 	protected final Position anchor = Position.of(this, 0, 0);
-	private final List<E> entries = new Entries();
+	private final Entries entries = new Entries();
 	private final int anchorYOffset;
 	private double scrollAmount;
 	private Background background = TransparentBackground.NORMAL;
@@ -62,6 +68,8 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 	private Border border = EmptyBorder.EMPTY_BORDER;
 	private boolean scrolling = false;
 	private boolean allowOutsideHorizontalNavigation = false;
+	private int visibleStart = 0;
+	private int visibleEnd = 0;
 
 	public SpruceEntryListWidget(Position position, int width, int height, int anchorYOffset, Class<E> entryClass) {
 		super(position, entryClass);
@@ -123,6 +131,7 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 		this.anchor.setRelativeX(border.getThickness());
 		if (this.anchor.getRelativeY() == this.anchorYOffset && this.hasBorder())
 			this.anchor.setRelativeY(this.anchorYOffset + border.getThickness());
+		this.updateVisibleEntries();
 	}
 
 	public boolean doesAllowOutsideHorizontalNavigation() {
@@ -133,16 +142,57 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 		this.allowOutsideHorizontalNavigation = allowOutsideHorizontalNavigation;
 	}
 
+	/**
+	 * Returns the length of the list up to the specified entry, inclusive.
+	 * <p>
+	 * This is a constant time lookup in the height index maintained by the entry list.
+	 *
+	 * @param index the index of the last entry to include, {@code -1} returns {@code 0}
+	 * @return the length until the specified entry
+	 */
 	protected int getLengthUntil(int index) {
-		int max = 0;
-		for (int i = 0; i <= index; i++) {
-			max += this.entries.get(i).getHeight();
-		}
-		return max;
+		return this.entries.getOffset(index + 1);
 	}
 
 	public int getMaxPosition() {
-		return this.getLengthUntil(this.getEntriesCount() - 1);
+		return this.entries.getOffset(this.entries.size());
+	}
+
+	/**
+	 * Notifies this list that the height of the given entry has changed.
+	 * <p>
+	 * The positions of the given entry and of the entries after it are updated.
+	 * Entries resized through {@code setSize} notify their list themselves,
+	 * and the heights of the visible entries are checked against the height index before each render.
+	 *
+	 * @param entry the entry whose height has changed
+	 */
+	protected void onEntryHeightChanged(E entry) {
+		int index = this.entries.indexOf(entry);
+		if (index == -1)
+			return;
+
+		this.entries.invalidateFrom(index);
+		if (!this.entries.isBatching())
+			this.setScrollAmount(this.getScrollAmount());
+	}
+
+	/**
+	 * Repairs the height index if the height of a visible entry no longer matches it,
+	 * for entries which compute their height on the fly without notifying the list.
+	 */
+	private void checkVisibleHeights() {
+		if (this.entries.isBatching())
+			return;
+
+		for (int i = this.visibleStart; i < this.visibleEnd; i++) {
+			if (this.entries.get(i).getHeight() != this.entries.getOffset(i + 1) - this.entries.getOffset(i)) {
+				// The positions after the entry are recomputed from the actual heights, including other mismatches.
+				this.entries.invalidateFrom(i);
+				this.setScrollAmount(this.getScrollAmount());
+				return;
+			}
+		}
 	}
 
 	private void scroll(int amount) {
@@ -161,17 +211,53 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 	/**
 	 * Sets the scroll amount of this list. The amount is clamped between 0 and the maximum scroll ({@link #getMaxScroll()}).
 	 * <p>
-	 * It also recompute the visibility of each entries.
+	 * It also updates the visibility of the entries entering or leaving the viewport.
 	 *
 	 * @param amount the scroll amount
 	 */
 	public void setScrollAmount(double amount) {
 		this.scrollAmount = MathHelper.clamp(amount, 0, this.getMaxScroll());
 		this.anchor.setRelativeY((int) (this.anchorYOffset + this.getBorder().getThickness() - this.scrollAmount));
+		this.updateVisibleEntries();
+	}
+
+	/**
+	 * Updates the range of visible entries.
+	 * <p>
+	 * Only the entries entering or leaving the range have their visibility toggled,
+	 * so the cost is proportional to the scrolled distance rather than to the size of the list.
+	 */
+	private void updateVisibleEntries() {
+		if (this.entries.isBatching())
+			return; // The height index is stale, the range will be updated at the end of the batch.
+
+		int relativeY = this.anchor.getRelativeY();
+		int start = this.entries.getFirstEndingAfter(-relativeY);
+		int end = Math.max(start, this.entries.getLastStartingBefore(this.getHeight() - relativeY) + 1);
 
-		for (var entry : this.entries) {
-			entry.setVisibleInList(!(entry.getY() + entry.getHeight() < this.getY() || entry.getY() > this.getY() + this.getHeight()));
+		for (int i = this.visibleStart; i < this.visibleEnd; i++) {
+			if (i < start || i >= end)
+				this.entries.get(i).setVisibleInList(false);
 		}
+		for (int i = start; i < end; i++) {
+			if (i < this.visibleStart || i >= this.visibleEnd)
+				this.entries.get(i).setVisibleInList(true);
+		}
+
+		this.visibleStart = start;
+		this.visibleEnd = end;
+	}
+
+	/**
+	 * Returns whether an entry at the given offset would intersect the viewport.
+	 *
+	 * @param offset the offset of the entry relative to the start of the list
+	 * @param height the height of the entry
+	 * @return {@code true} if the entry is in the viewport, else {@code false}
+	 */
+	private boolean isInViewport(int offset, int height) {
+		int y = this.anchor.getRelativeY() + offset;
+		return !(y + height < 0 || y > this.getHeight());
 	}
 
 	/**
@@ -192,20 +278,96 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 		return this.entries;
 	}
 
-	protected final void clearEntries() {
+	protected void clearEntries() {
 		this.setFocused(null);
 		this.entries.clear();
 	}
 
 	protected void replaceEntries(Collection<E> newEntries) {
 		var oldFocused = this.getFocused();
-		this.entries.clear();
-		this.entries.addAll(newEntries);
+		this.beginBatch();
+		try {
+			this.entries.clear();
+			this.entries.addAll(newEntries);
+		} finally {
+			this.endBatch();
+		}
 		if (!newEntries.contains(oldFocused)) {
 			this.setFocused(null);
 		}
 	}
 
+	/**
+	 * Starts a batch of entry mutations.
+	 * <p>
+	 * While a batch is active the positions, the height index and the ownership of the entries are not updated,
+	 * they are recomputed in a single pass once the outermost batch ends.
+	 * Batches can be nested, every call must be paired with a call to {@link #endBatch()}.
+	 */
+	protected void beginBatch() {
+		this.entries.beginBatch();
+	}
+
+	/**
+	 * Ends a batch of entry mutations started with {@link #beginBatch()}.
+	 * <p>
+	 * If this ends the outermost batch, the pending updates are applied and the scroll amount is clamped again.
+	 */
+	protected void endBatch() {
+		if (this.entries.endBatch())
+			this.setScrollAmount(this.getScrollAmount());
+	}
+
+	/**
+	 * Adds the given entries at the end of this list in a single pass.
+	 *
+	 * @param newEntries the entries to add
+	 */
+	protected void addEntries(Collection<? extends E> newEntries) {
+		this.beginBatch();
+		try {
+			this.entries.addAll(newEntries);
+		} finally {
+			this.endBatch();
+		}
+	}
+
+	/**
+	 * Removes the given entries from this list in a single pass.
+	 * <p>
+	 * If the focused entry is removed, the focus is cleared.
+	 *
+	 * @param toRemove the entries to remove
+	 * @return {@code true} if any entry was removed, else {@code false}
+	 */
+	protected boolean removeEntries(Collection<?> toRemove) {
+		var set = new HashSet<>(toRemove);
+		return this.removeEntriesIf(set::contains);
+	}
+
+	/**
+	 * Removes the entries matching the given predicate from this list in a single pass.
+	 * <p>
+	 * If the focused entry is removed, the focus is cleared.
+	 *
+	 * @param filter the predicate which returns {@code true} for the entries to remove
+	 * @return {@code true} if any entry was removed, else {@code false}
+	 */
+	protected boolean removeEntriesIf(Predicate<? super E> filter) {
+		var oldFocused = this.getFocused();
+		boolean removed;
+		this.beginBatch();
+		try {
+			removed = this.entries.removeIf(filter);
+		} finally {
+			this.endBatch();
+		}
+		if (removed && oldFocused != null && !this.entries.contains(oldFocused)) {
+			this.setFocused(null);
+		}
+		return removed;
+	}
+
 	protected @Nullable E getEntry(int index) {
 		return this.children().get(index);
 	}
@@ -267,10 +429,35 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 		return this.getY() + 4 - (int) this.getScrollAmount() + this.getLengthUntil(index);
 	}
 
+	/**
+	 * Returns the entries which intersect the viewport of this list.
+	 * <p>
+	 * The bounds are found with a binary search in the height index, only those entries are rendered and receive mouse input.
+	 *
+	 * @return the visible entries
+	 */
+	protected List<E> getVisibleEntries() {
+		return this.entries.subList(this.visibleStart, this.visibleEnd);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The entry under the cursor is found with a binary search in the height index.
+	 */
+	@Override
+	public Iterator<E> getHitTestCandidates(double mouseX, double mouseY) {
+		int index = this.entries.getLastStartingBefore(MathHelper.floor(mouseY) - this.anchor.getY());
+		if (index < this.visibleStart || index >= this.visibleEnd)
+			return Collections.emptyIterator();
+		return Collections.singletonList(this.entries.get(index)).iterator();
+	}
+
 	@Override
 	protected void setOwnerShip(E entry) {
 		entry.getPosition().setAnchor(this.anchor);
-		entry.setVisibleInList(!(entry.getY() + entry.getHeight() < this.getY() || entry.getY() > this.getY() + this.getHeight()));
+		entry.setSizeChangedListener(() -> this.onEntryHeightChanged(entry));
+		entry.setVisibleInList(this.isInViewport(entry.getPosition().getRelativeY(), entry.getHeight()));
 	}
 
 	/* Navigation */
@@ -343,8 +530,12 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 		int top = this.getY();
 		int bottom = top + this.getHeight();
 
+		this.checkVisibleHeights();
+
 		ScissorManager.push(this.getX(), this.getY(), this.getWidth(), this.getHeight());
-		this.entries.forEach(e -> e.render(drawContext, mouseX, mouseY, delta));
+		for (var entry : this.getVisibleEntries()) {
+			entry.render(drawContext, mouseX, mouseY, delta);
+		}
 		ScissorManager.pop();
 
 
@@ -415,6 +606,20 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 	@Environment(EnvType.CLIENT)
 	class Entries extends AbstractList<E> {
 		private final List<E> entries;
+		/**
+		 * The height index, {@code offsets[i]} is the top of the entry {@code i} relative to the start of the list,
+		 * and {@code offsets[size()]} is the total length of the list.
+		 */
+		private int[] offsets = new int[16];
+		/**
+		 * The entries added during the current batch which still need their ownership to be set.
+		 */
+		private final List<E> pendingOwnership = new ArrayList<>();
+		private int batchDepth = 0;
+		/**
+		 * The index of the first entry whose position is outdated, or {@link Integer#MAX_VALUE} if none.
+		 */
+		private int dirtyFrom = Integer.MAX_VALUE;
 
 		private Entries() {
 			this.entries = Lists.newArrayList();
@@ -428,36 +633,239 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 			return this.entries.size();
 		}
 
+		/**
+		 * {@inheritDoc}
+		 * <p>
+		 * The index stored on the entry is checked first, entries being compared by identity.
+		 */
+		@Override
+		public int indexOf(Object o) {
+			if (o instanceof Entry entry) {
+				int index = entry.listIndex;
+				if (index >= 0 && index < this.entries.size() && this.entries.get(index) == entry)
+					return index;
+			}
+			// The entry may not be part of this list, or its index is outdated during a batch.
+			return this.entries.indexOf(o);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return this.indexOf(o) != -1;
+		}
+
 		public E set(int i, E entry) {
 			var entry2 = this.entries.set(i, entry);
-			this.recomputePositions();
-			SpruceEntryListWidget.this.setOwnerShip(entry);
+			this.onAdded(i, List.of(entry));
 			return entry2;
 		}
 
 		public void add(int i, E entry) {
 			this.entries.add(i, entry);
-			this.recomputePositions();
-			SpruceEntryListWidget.this.setOwnerShip(entry);
+			this.onAdded(i, List.of(entry));
+		}
+
+		@Override
+		public boolean addAll(int i, Collection<? extends E> c) {
+			if (!this.entries.addAll(i, c))
+				return false;
+			this.onAdded(i, c);
+			return true;
 		}
 
 		public E remove(int i) {
 			var result = this.entries.remove(i);
-			this.recomputePositions();
+			this.invalidateFrom(i);
 			return result;
 		}
 
-		private void recomputePositions() {
-			int y = 0;
-			for (var entry : this.entries) {
+		@Override
+		public void clear() {
+			this.entries.clear();
+			SpruceEntryListWidget.this.visibleStart = SpruceEntryListWidget.this.visibleEnd = 0;
+			this.invalidateFrom(0);
+		}
+
+		@Override
+		protected void removeRange(int fromIndex, int toIndex) {
+			if (fromIndex >= toIndex)
+				return;
+			this.entries.subList(fromIndex, toIndex).clear();
+			this.invalidateFrom(fromIndex);
+		}
+
+		@Override
+		public boolean removeIf(Predicate<? super E> filter) {
+			int size = this.entries.size();
+			int kept = 0;
+			int from = -1;
+			for (int i = 0; i < size; i++) {
+				var entry = this.entries.get(i);
+				if (filter.test(entry)) {
+					if (from == -1)
+						from = i;
+				} else {
+					if (kept != i)
+						this.entries.set(kept, entry);
+					kept++;
+				}
+			}
+
+			if (from == -1)
+				return false;
+			this.entries.subList(kept, size).clear();
+			this.invalidateFrom(from);
+			return true;
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> c) {
+			var set = new HashSet<>(c);
+			return this.removeIf(set::contains);
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> c) {
+			var set = new HashSet<>(c);
+			return this.removeIf(entry -> !set.contains(entry));
+		}
+
+		private void onAdded(int index, Collection<? extends E> added) {
+			if (this.batchDepth > 0) {
+				this.pendingOwnership.addAll(added);
+				this.invalidateFrom(index);
+			} else {
+				this.recomputePositions(index);
+				added.forEach(SpruceEntryListWidget.this::setOwnerShip);
+			}
+		}
+
+		boolean isBatching() {
+			return this.batchDepth > 0;
+		}
+
+		void beginBatch() {
+			this.batchDepth++;
+		}
+
+		/**
+		 * Ends a batch and applies the pending updates if it was the outermost one.
+		 *
+		 * @return {@code true} if the outermost batch ended, else {@code false}
+		 */
+		boolean endBatch() {
+			if (this.batchDepth == 0)
+				throw new IllegalStateException("Cannot end a batch which has not been started.");
+			if (--this.batchDepth > 0)
+				return false;
+
+			if (this.dirtyFrom != Integer.MAX_VALUE) {
+				int from = Math.min(this.dirtyFrom, this.entries.size());
+				this.dirtyFrom = Integer.MAX_VALUE;
+				this.recomputePositions(from);
+			}
+			this.pendingOwnership.forEach(SpruceEntryListWidget.this::setOwnerShip);
+			this.pendingOwnership.clear();
+			return true;
+		}
+
+		/**
+		 * Marks the entries starting from the given index as outdated.
+		 * <p>
+		 * Outside of a batch the positions are recomputed immediately.
+		 *
+		 * @param from the index of the first outdated entry
+		 */
+		void invalidateFrom(int from) {
+			if (this.batchDepth > 0)
+				this.dirtyFrom = Math.min(this.dirtyFrom, from);
+			else
+				this.recomputePositions(from);
+		}
+
+		/**
+		 * Returns the offset of the top of the given entry relative to the start of the list.
+		 *
+		 * @param index the index of the entry, or the size of the list to get the total length
+		 * @return the offset
+		 */
+		int getOffset(int index) {
+			return this.offsets[index];
+		}
+
+		/**
+		 * Returns the index of the first entry whose bottom is at or after the given offset.
+		 *
+		 * @param offset the offset relative to the start of the list
+		 * @return the index of the entry, or the size of the list if there is none
+		 */
+		int getFirstEndingAfter(int offset) {
+			int low = 0;
+			int high = this.entries.size();
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (this.offsets[middle + 1] < offset) low = middle + 1;
+				else high = middle;
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the index of the last entry whose top is at or before the given offset.
+		 *
+		 * @param offset the offset relative to the start of the list
+		 * @return the index of the entry, or {@code -1} if there is none
+		 */
+		int getLastStartingBefore(int offset) {
+			int low = 0;
+			int high = this.entries.size();
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (this.offsets[middle] <= offset) low = middle + 1;
+				else high = middle;
+			}
+			return low - 1;
+		}
+
+		/**
+		 * Recomputes the positions, the height index and the visibility of the entries starting from the given index.
+		 * <p>
+		 * Entries before the given index are left untouched as their offsets cannot have changed.
+		 *
+		 * @param from the index of the first entry to update
+		 */
+		void recomputePositions(int from) {
+			int size = this.entries.size();
+			if (this.offsets.length < size + 1) {
+				this.offsets = Arrays.copyOf(this.offsets, Math.max(size + 1, this.offsets.length * 2));
+			}
+
+			int y = this.offsets[from];
+			for (int i = from; i < size; i++) {
+				var entry = this.entries.get(i);
+				int height = entry.getHeight();
+				this.offsets[i] = y;
+				((Entry) entry).listIndex = i;
 				entry.getPosition().setRelativeY(y);
-				y += entry.getHeight();
+				entry.setVisibleInList(SpruceEntryListWidget.this.isInViewport(y, height));
+				y += height;
 			}
+			this.offsets[size] = y;
+
+			// The visibility of the entries from the given index has been refreshed above, only the range needs an update.
+			var list = SpruceEntryListWidget.this;
+			list.visibleStart = Math.min(list.visibleStart, from);
+			list.visibleEnd = Math.min(list.visibleEnd, from);
+			list.updateVisibleEntries();
 		}
 	}
 
 	public static abstract class Entry extends AbstractSpruceWidget {
 		private boolean visibleInList = false;
+		/**
+		 * The last known index of this entry in its list, kept up to date when positions are recomputed.
+		 */
+		private int listIndex = -1;
 
 		public Entry() {
 			super(Position.origin());
@@ -465,6 +873,10 @@ public abstract class SpruceEntryListWidget<E extends SpruceEntryListWidget.Entr
 
 		protected void setVisibleInList(boolean visible) {
 			this.visibleInList = visible;
+			if (!visible) {
+				// Culled entries are not rendered anymore, so they cannot reset their hover state themselves.
+				this.hovered = this.wasHovered = false;
+			}
 		}
 
 		@Override
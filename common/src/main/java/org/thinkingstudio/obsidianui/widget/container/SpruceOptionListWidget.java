@@ -17,25 +17,40 @@ import net.minecraft.text.Text;
 import org.jetbrains.annotations.Nullable;
 import org.lwjgl.glfw.GLFW;
 import org.thinkingstudio.obsidianui.Position;
+import org.thinkingstudio.obsidianui.SpruceTexts;
 import org.thinkingstudio.obsidianui.navigation.NavigationDirection;
 import org.thinkingstudio.obsidianui.navigation.NavigationUtils;
 import org.thinkingstudio.obsidianui.option.SpruceOption;
+import org.thinkingstudio.obsidianui.util.SearchIndex;
 import org.thinkingstudio.obsidianui.widget.AbstractSpruceWidget;
 import org.thinkingstudio.obsidianui.widget.SpruceWidget;
+import org.thinkingstudio.obsidianui.widget.text.SpruceTextFieldWidget;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Represents a list widget holding {@link SpruceOption} entries.
  * <p>
  * A {@link SpruceOption} allows to have an easy control over the widgets present in the list.
+ * <p>
+ * The list can be filtered with {@link #setFilter(String)}, which matches the keys, the translated names
+ * and the tooltips of the options through a {@link SearchIndex} built on the first use.
  *
  * @author LambdAurora
  * @version 5.0.0
  * @since 2.0.0
  */
 public class SpruceOptionListWidget extends SpruceEntryListWidget<SpruceOptionListWidget.OptionEntry> {
+	/**
+	 * All the entries of this list, including the ones hidden by the filter.
+	 */
+	private final List<OptionEntry> allEntries = new ArrayList<>();
+	private @Nullable SearchIndex searchIndex;
+	private String filter = "";
 	private int lastIndex = 0;
 
 	public SpruceOptionListWidget(Position position, int width, int height) {
@@ -46,7 +61,7 @@ public class SpruceOptionListWidget extends SpruceEntryListWidget<SpruceOptionLi
 	 * Adds a single option entry. The option will use all the width available.
 	 *
 	 * @param option the option
-	 * @return the index of the added entry
+	 * @return the index of the added entry, or {@code -1} if it is hidden by the filter
 	 */
 	public int addSingleOptionEntry(SpruceOption option) {
 		return this.addEntry(OptionEntry.create(this, option, false));
@@ -56,7 +71,7 @@ public class SpruceOptionListWidget extends SpruceEntryListWidget<SpruceOptionLi
 	 * Adds a single option entry. The option will center the element and will not use the full width.
 	 *
 	 * @param option the option
-	 * @return the index of the added entry
+	 * @return the index of the added entry, or {@code -1} if it is hidden by the filter
 	 */
 	public int addSmallSingleOptionEntry(SpruceOption option) {
 		return this.addEntry(OptionEntry.create(this, option, true));
@@ -75,16 +90,137 @@ public class SpruceOptionListWidget extends SpruceEntryListWidget<SpruceOptionLi
 	}
 
 	public void addAll(SpruceOption[] options) {
-		for (int i = 0; i < options.length; i += 2) {
-			this.addOptionEntry(options[i], i < options.length - 1 ? options[i + 1] : null);
+		this.beginBatch();
+		try {
+			for (int i = 0; i < options.length; i += 2) {
+				this.addOptionEntry(options[i], i < options.length - 1 ? options[i + 1] : null);
+			}
+		} finally {
+			this.endBatch();
+		}
+	}
+
+	@Override
+	protected int addEntry(OptionEntry entry) {
+		this.allEntries.add(entry);
+		if (this.searchIndex != null)
+			indexEntry(this.searchIndex, entry);
+
+		if (!this.filter.isEmpty() && !this.getSearchIndex().matches(this.allEntries.size() - 1, this.filter))
+			return -1;
+		return super.addEntry(entry);
+	}
+
+	@Override
+	protected void addEntries(Collection<? extends OptionEntry> newEntries) {
+		this.beginBatch();
+		try {
+			newEntries.forEach(this::addEntry);
+		} finally {
+			this.endBatch();
+		}
+	}
+
+	@Override
+	protected boolean removeEntry(OptionEntry entry) {
+		boolean removed = this.allEntries.remove(entry);
+		if (removed)
+			this.searchIndex = null;
+		return super.removeEntry(entry) || removed;
+	}
+
+	@Override
+	protected boolean removeEntriesIf(Predicate<? super OptionEntry> filter) {
+		boolean removed = this.allEntries.removeIf(filter);
+		if (removed)
+			this.searchIndex = null;
+		return super.removeEntriesIf(filter) || removed;
+	}
+
+	@Override
+	protected void clearEntries() {
+		this.allEntries.clear();
+		this.searchIndex = null;
+		super.clearEntries();
+	}
+
+	/* Filtering */
+
+	/**
+	 * Returns the current filter of this list.
+	 *
+	 * @return the filter, empty if no filter is applied
+	 */
+	public String getFilter() {
+		return this.filter;
+	}
+
+	/**
+	 * Sets the filter of this list, only the entries having an option whose key, name or tooltip
+	 * contains words starting with every word of the filter are shown.
+	 * <p>
+	 * If the new filter refines the previous one, only the previously matching entries are tested again.
+	 *
+	 * @param filter the filter, an empty filter shows every entry
+	 */
+	public void setFilter(String filter) {
+		filter = filter.strip();
+		if (filter.equals(this.filter))
+			return;
+		this.filter = filter;
+
+		if (filter.isEmpty()) {
+			this.replaceEntries(this.allEntries);
+		} else {
+			var matches = this.getSearchIndex().search(filter);
+			var entries = new ArrayList<OptionEntry>(matches.cardinality());
+			for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+				entries.add(this.allEntries.get(i));
+			}
+			this.replaceEntries(entries);
 		}
+		this.setScrollAmount(0);
+	}
+
+	/**
+	 * Creates a text field which filters this list as its content changes.
+	 *
+	 * @param position the position of the text field
+	 * @param width the width of the text field
+	 * @return the filter text field
+	 */
+	public SpruceTextFieldWidget createFilterField(Position position, int width) {
+		var field = new SpruceTextFieldWidget(position, width, 20, SpruceTexts.GUI_SEARCH_HINT);
+		field.setText(this.filter);
+		field.setChangedListener(this::setFilter);
+		return field;
+	}
+
+	private SearchIndex getSearchIndex() {
+		if (this.searchIndex == null) {
+			this.searchIndex = new SearchIndex();
+			for (var entry : this.allEntries) {
+				indexEntry(this.searchIndex, entry);
+			}
+		}
+		return this.searchIndex;
+	}
+
+	private static void indexEntry(SearchIndex index, OptionEntry entry) {
+		var texts = new ArrayList<String>();
+		for (var option : entry.options) {
+			texts.add(option.key);
+			texts.add(option.getName());
+			option.getOptionTooltip().ifPresent(tooltip -> texts.add(tooltip.getString()));
+		}
+		index.add(texts.toArray(String[]::new));
 	}
 
 	/* Narration */
 
 	@Override
 	public void appendNarrations(NarrationMessageBuilder builder) {
-		this.children()
+		this.getVisibleEntries()
 				.stream()
 				.filter(AbstractSpruceWidget::isMouseHovered)
 				.findFirst()
@@ -106,8 +242,10 @@ public class SpruceOptionListWidget extends SpruceEntryListWidget<SpruceOptionLi
 
 	public static class OptionEntry extends Entry implements SpruceParentWidget<SpruceWidget> {
 		private final List<SpruceWidget> children = new ArrayList<>();
+		private final List<SpruceOption> options = new ArrayList<>(2);
 		private final SpruceOptionListWidget parent;
 		private @Nullable SpruceWidget focused;
+		private int cachedHeight = -1;
 		private boolean dragging;
 
 		private OptionEntry(SpruceOptionListWidget parent) {
@@ -116,28 +254,64 @@ public class SpruceOptionListWidget extends SpruceEntryListWidget<SpruceOptionLi
 
 		public static OptionEntry create(SpruceOptionListWidget parent, SpruceOption option, boolean small) {
 			var entry = new OptionEntry(parent);
-			entry.children.add(option.createWidget(Position.of(entry, entry.getWidth() / 2 - (small ? 75 : 155), 2),
+			entry.options.add(option);
+			entry.addChild(option.createWidget(Position.of(entry, entry.getWidth() / 2 - (small ? 75 : 155), 2),
 					small ? 150 : 310));
 			return entry;
 		}
 
 		public static OptionEntry create(SpruceOptionListWidget parent, SpruceOption firstOption, @Nullable SpruceOption secondOption) {
 			var entry = new OptionEntry(parent);
-			entry.children.add(firstOption.createWidget(Position.of(entry, entry.getWidth() / 2 - 155, 2), 150));
+			entry.options.add(firstOption);
+			entry.addChild(firstOption.createWidget(Position.of(entry, entry.getWidth() / 2 - 155, 2), 150));
 			if (secondOption != null) {
-				entry.children.add(secondOption.createWidget(Position.of(entry, entry.getWidth() / 2 - 155 + 160, 2), 150));
+				entry.options.add(secondOption);
+				entry.addChild(secondOption.createWidget(Position.of(entry, entry.getWidth() / 2 - 155 + 160, 2), 150));
 			}
 			return entry;
 		}
 
+		/**
+		 * Returns the options displayed by this entry.
+		 *
+		 * @return the options
+		 */
+		public List<SpruceOption> getOptions() {
+			return Collections.unmodifiableList(this.options);
+		}
+
 		@Override
 		public int getWidth() {
 			return this.parent.getWidth() - (this.parent.getBorder().getThickness() * 2);
 		}
 
+		private void addChild(SpruceWidget child) {
+			this.children.add(child);
+			if (child instanceof AbstractSpruceWidget widget)
+				widget.setSizeChangedListener(this::onChildSizeChanged);
+			this.cachedHeight = -1;
+		}
+
+		/**
+		 * Invalidates the cached height of this entry, and updates the layout of the list if the height changed.
+		 */
+		private void onChildSizeChanged() {
+			int oldHeight = this.cachedHeight;
+			this.cachedHeight = -1;
+			if (oldHeight != -1 && oldHeight != this.getHeight())
+				this.parent.onEntryHeightChanged(this);
+		}
+
 		@Override
 		public int getHeight() {
-			return this.children.stream().mapToInt(SpruceWidget::getHeight).reduce(Integer::max).orElse(0) + 4;
+			if (this.cachedHeight == -1) {
+				int height = 0;
+				for (int i = 0; i < this.children.size(); i++) {
+					height = Math.max(height, this.children.get(i).getHeight());
+				}
+				this.cachedHeight = height + 4;
+			}
+			return this.cachedHeight;
 		}
 
 		@Override
@@ -171,7 +345,7 @@ public class SpruceOptionListWidget extends SpruceEntryListWidget<SpruceOptionLi
 
 		@Override
 		protected boolean onMouseClick(double mouseX, double mouseY, int button) {
-			var it = this.iterator();
+			var it = this.getHitTestCandidates(mouseX, mouseY);
 
 			SpruceWidget element;
 			do {
@@ -53,6 +53,19 @@ public interface SpruceParentWidget<E extends SpruceWidget> extends SpruceWidget
 	 */
 	void setFocused(@Nullable E focused);
 
+	/**
+	 * Returns the children which may receive mouse input at the given coordinates, in dispatch order.
+	 * <p>
+	 * Implementations may use a hit-test index to avoid testing every child, returned children are still tested.
+	 *
+	 * @param mouseX the mouse X-coordinate
+	 * @param mouseY the mouse Y-coordinate
+	 * @return the candidate children
+	 */
+	default Iterator<E> getHitTestCandidates(double mouseX, double mouseY) {
+		return this.iterator();
+	}
+
 	/**
 	 * Returns the potential hovered element at the given mouse coordinates.
 	 *
@@ -61,7 +74,7 @@ public interface SpruceParentWidget<E extends SpruceWidget> extends SpruceWidget
 	 * @return the hovered element if it exists, may be empty if none is present at the given coordinates
 	 */
 	default Optional<E> hoveredElement(double mouseX, double mouseY) {
-		var it = this.children().iterator();
+		var it = this.getHitTestCandidates(mouseX, mouseY);
 
 		E element;
 		do {
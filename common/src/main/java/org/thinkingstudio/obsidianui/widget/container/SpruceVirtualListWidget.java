@@ -0,0 +1,528 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.widget.container;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.narration.NarrationMessageBuilder;
+import net.minecraft.client.gui.screen.narration.NarrationPart;
+import net.minecraft.client.render.*;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.MathHelper;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.glfw.GLFW;
+import org.thinkingstudio.obsidianui.Position;
+import org.thinkingstudio.obsidianui.background.Background;
+import org.thinkingstudio.obsidianui.background.TransparentBackground;
+import org.thinkingstudio.obsidianui.border.Border;
+import org.thinkingstudio.obsidianui.border.EmptyBorder;
+import org.thinkingstudio.obsidianui.navigation.NavigationDirection;
+import org.thinkingstudio.obsidianui.util.ScissorManager;
+import org.thinkingstudio.obsidianui.widget.SpruceWidget;
+import org.thinkingstudio.obsidianui.widget.WithBackground;
+import org.thinkingstudio.obsidianui.widget.WithBorder;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Represents a virtualized list.
+ * <p>
+ * Unlike {@link SpruceEntryListWidget}, this list does not hold a widget per item.
+ * It keeps a pool of row widgets just large enough to fill its viewport,
+ * and binds them to the items of a {@link DataSource} as the list is scrolled.
+ * All the rows share the same height.
+ *
+ * @param <R> the type of row widgets
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public class SpruceVirtualListWidget<R extends SpruceWidget> extends AbstractSpruceParentWidget<R>
+		implements WithBackground, WithBorder {
+	protected final Position anchor = Position.of(this, 0, 0);
+	private final List<R> pool = new ArrayList<>();
+	private final List<R> boundRows = new BoundRows();
+	private final int rowHeight;
+	private final RowFactory<R> rowFactory;
+	private DataSource<R> dataSource;
+	private double scrollAmount;
+	private int firstIndex = 0;
+	private int boundCount = 0;
+	private int lastSize = 0;
+	private int focusedIndex = -1;
+	private Background background = TransparentBackground.NORMAL;
+	private Border border = EmptyBorder.EMPTY_BORDER;
+	private boolean scrolling = false;
+
+	public SpruceVirtualListWidget(Position position, int width, int height, int rowHeight, Class<R> rowClass,
+	                               RowFactory<R> rowFactory, DataSource<R> dataSource) {
+		super(position, rowClass);
+		if (rowHeight <= 0)
+			throw new IllegalArgumentException("The row height must be positive.");
+		this.width = width;
+		this.height = height;
+		this.rowHeight = rowHeight;
+		this.rowFactory = rowFactory;
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * Returns the height of every row of this list.
+	 *
+	 * @return the row height
+	 */
+	public int getRowHeight() {
+		return this.rowHeight;
+	}
+
+	/**
+	 * Returns the data source of this list.
+	 *
+	 * @return the data source
+	 */
+	public DataSource<R> getDataSource() {
+		return this.dataSource;
+	}
+
+	/**
+	 * Sets the data source of this list, the list is scrolled back to the top.
+	 *
+	 * @param dataSource the data source
+	 */
+	public void setDataSource(DataSource<R> dataSource) {
+		this.dataSource = dataSource;
+		this.setFocused(null);
+		this.scrollAmount = 0;
+		this.notifyDataChanged();
+	}
+
+	/**
+	 * Notifies this list that the items of its data source have changed, every visible row is bound again.
+	 * <p>
+	 * Changes to the size of the data source are picked up automatically.
+	 */
+	public void notifyDataChanged() {
+		this.boundCount = 0;
+		this.lastSize = this.dataSource.size();
+		if (this.focusedIndex >= this.lastSize)
+			this.setFocused(null);
+		this.setScrollAmount(this.scrollAmount);
+	}
+
+	/**
+	 * Returns the inner width of the list.
+	 *
+	 * @return the inner width
+	 */
+	public int getInnerWidth() {
+		int width = this.getWidth();
+		if (this.getMaxScroll() > 0)
+			width -= 6;
+		width -= this.getBorder().getThickness() * 2;
+		return width;
+	}
+
+	/**
+	 * Returns the inner height of the list.
+	 *
+	 * @return the inner height
+	 */
+	public int getInnerHeight() {
+		return this.getHeight() - this.getBorder().getThickness() * 2;
+	}
+
+	@Override
+	public Background getBackground() {
+		return this.background;
+	}
+
+	@Override
+	public void setBackground(Background background) {
+		this.background = background;
+	}
+
+	@Override
+	public Border getBorder() {
+		return this.border;
+	}
+
+	@Override
+	public void setBorder(Border border) {
+		this.border = border;
+		this.anchor.setRelativeX(border.getThickness());
+		// The rows are sized against the border, so they have to be recreated.
+		this.setFocused(null);
+		this.pool.clear();
+		this.notifyDataChanged();
+	}
+
+	public int getMaxPosition() {
+		return this.dataSource.size() * this.rowHeight;
+	}
+
+	/**
+	 * Returns the max scroll. The scroll amount can't go past this maximum.
+	 *
+	 * @return the max scroll
+	 */
+	public int getMaxScroll() {
+		return Math.max(0, this.getMaxPosition() - this.getInnerHeight());
+	}
+
+	/**
+	 * Gets the scroll amount of this list. The amount is clamped between 0 and the maximum scroll ({@link #getMaxScroll()}).
+	 *
+	 * @return the scroll amount
+	 */
+	public double getScrollAmount() {
+		return this.scrollAmount;
+	}
+
+	/**
+	 * Sets the scroll amount of this list. The amount is clamped between 0 and the maximum scroll ({@link #getMaxScroll()}).
+	 * <p>
+	 * Only the rows scrolling into view are bound to their new item.
+	 *
+	 * @param amount the scroll amount
+	 */
+	public void setScrollAmount(double amount) {
+		this.scrollAmount = MathHelper.clamp(amount, 0, this.getMaxScroll());
+		this.anchor.setRelativeY((int) (this.getBorder().getThickness() - this.scrollAmount));
+		this.bindRows();
+	}
+
+	/**
+	 * Scrolls the list so that the item at the given index is visible.
+	 *
+	 * @param index the index of the item
+	 */
+	public void ensureVisible(int index) {
+		int top = index * this.rowHeight;
+		if (top < this.scrollAmount) {
+			this.setScrollAmount(top);
+		} else if (top + this.rowHeight > this.scrollAmount + this.getInnerHeight()) {
+			this.setScrollAmount(top + this.rowHeight - this.getInnerHeight());
+		}
+	}
+
+	protected int getScrollbarPositionX() {
+		return this.getX() + this.getWidth() - 6 - this.getBorder().getThickness();
+	}
+
+	/**
+	 * Returns the rows currently bound to an item, in display order.
+	 *
+	 * @return the bound rows
+	 */
+	@Override
+	public List<R> children() {
+		return this.boundRows;
+	}
+
+	/**
+	 * Returns the row bound to the item at the given index.
+	 *
+	 * @param index the index of the item
+	 * @return the row if the item is bound, else {@code null}
+	 */
+	public @Nullable R getRow(int index) {
+		if (index < this.firstIndex || index >= this.firstIndex + this.boundCount)
+			return null;
+		return this.pool.get(index % this.pool.size());
+	}
+
+	/**
+	 * Returns the index of the item bound to the given row.
+	 *
+	 * @param row the row
+	 * @return the index of the item, or {@code -1} if the row is not bound
+	 */
+	public int getRowIndex(R row) {
+		int slot = this.pool.indexOf(row);
+		if (slot == -1 || this.boundCount == 0)
+			return -1;
+
+		int poolSize = this.pool.size();
+		int index = this.firstIndex + Math.floorMod(slot - this.firstIndex, poolSize);
+		return index < this.firstIndex + this.boundCount ? index : -1;
+	}
+
+	private void ensurePool() {
+		if (!this.pool.isEmpty())
+			return;
+
+		int poolSize = MathHelper.ceil(this.getInnerHeight() / (double) this.rowHeight) + 1;
+		int rowWidth = this.getWidth() - this.getBorder().getThickness() * 2;
+		for (int i = 0; i < poolSize; i++) {
+			var row = this.rowFactory.create(Position.of(this.anchor, 0, 0), rowWidth, this.rowHeight);
+			row.setVisible(false);
+			this.pool.add(row);
+		}
+	}
+
+	/**
+	 * Binds the rows to the items which intersect the viewport.
+	 * <p>
+	 * Item {@code i} is always bound to the row {@code i % poolSize}, so rows which stay in view keep their binding.
+	 */
+	private void bindRows() {
+		this.ensurePool();
+		int size = this.dataSource.size();
+		int poolSize = this.pool.size();
+		int first = MathHelper.clamp((int) (this.scrollAmount / this.rowHeight), 0, Math.max(0, size - 1));
+		int count = Math.max(0, Math.min(poolSize, size - first));
+
+		int oldFirst = this.firstIndex;
+		int oldEnd = oldFirst + this.boundCount;
+		for (int index = first; index < first + count; index++) {
+			if (index < oldFirst || index >= oldEnd) {
+				this.bindRow(index, this.pool.get(index % poolSize));
+			}
+		}
+
+		this.firstIndex = first;
+		this.boundCount = count;
+		for (int slot = 0; slot < poolSize; slot++) {
+			var row = this.pool.get(slot);
+			boolean bound = Math.floorMod(slot - first, poolSize) < count;
+			if (row.isVisible() != bound) {
+				row.setVisible(bound);
+			}
+		}
+	}
+
+	private void bindRow(int index, R row) {
+		if (this.getFocused() == row && index != this.focusedIndex) {
+			// The focused item scrolled out of view, its row is recycled but the focused index is kept.
+			super.setFocused(null);
+		}
+
+		row.getPosition().setRelativeY(index * this.rowHeight);
+		this.dataSource.bind(index, row);
+
+		if (index == this.focusedIndex) {
+			super.setFocused(row);
+		}
+	}
+
+	@Override
+	public void setFocused(@Nullable R focused) {
+		super.setFocused(focused);
+		this.focusedIndex = focused == null ? -1 : this.getRowIndex(focused);
+	}
+
+	/* Navigation */
+
+	@Override
+	public boolean onNavigation(NavigationDirection direction, boolean tab) {
+		if (this.requiresCursor()) return false;
+
+		var focused = this.getFocused();
+		if (focused != null && focused.onNavigation(direction, tab)) {
+			this.setFocused(true);
+			return true;
+		}
+
+		int size = this.dataSource.size();
+		int index;
+		if (this.focusedIndex == -1) index = direction.isLookingForward() ? 0 : size - 1;
+		else index = this.focusedIndex + (direction.isLookingForward() ? 1 : -1);
+
+		if (index < 0 || index >= size) {
+			this.setFocused(null);
+			return false;
+		}
+
+		this.ensureVisible(index);
+		var row = this.getRow(index);
+		if (row == null || !row.onNavigation(direction, tab)) {
+			this.setFocused(null);
+			return false;
+		}
+
+		this.setFocused(row);
+		this.setFocused(true);
+		return true;
+	}
+
+	/* Input */
+
+	@Override
+	public Iterator<R> getHitTestCandidates(double mouseX, double mouseY) {
+		int index = MathHelper.floor((mouseY - this.anchor.getY()) / this.rowHeight);
+		var row = this.getRow(index);
+		if (row == null)
+			return Collections.emptyIterator();
+		return Collections.singletonList(row).iterator();
+	}
+
+	@Override
+	protected boolean onMouseClick(double mouseX, double mouseY, int button) {
+		this.scrolling = button == GLFW.GLFW_MOUSE_BUTTON_1 && this.getMaxScroll() > 0
+				&& mouseX >= this.getScrollbarPositionX() && mouseX < (this.getScrollbarPositionX() + 6);
+		if (this.scrolling)
+			return true;
+		return super.onMouseClick(mouseX, mouseY, button);
+	}
+
+	@Override
+	protected boolean onMouseDrag(double mouseX, double mouseY, int button, double deltaX, double deltaY) {
+		if (super.onMouseDrag(mouseX, mouseY, button, deltaX, deltaY)) return true;
+		else if (button == GLFW.GLFW_MOUSE_BUTTON_1 && this.scrolling) {
+			if (mouseY < this.getY()) {
+				this.setScrollAmount(0);
+			} else if (mouseY > (this.getY() + this.getHeight())) {
+				this.setScrollAmount(this.getMaxScroll());
+			} else {
+				double d = Math.max(1, this.getMaxScroll());
+				int height = this.getInnerHeight();
+				int j = MathHelper.clamp((int) ((float) (height * height) / (float) this.getMaxPosition()), 32, height - 8);
+				double e = Math.max(1, d / (double) (height - j));
+				this.setScrollAmount(this.getScrollAmount() + deltaY * e);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected boolean onMouseScroll(double mouseX, double mouseY, double scrollX, double scrollY) {
+		if (super.onMouseScroll(mouseX, mouseY, scrollX, scrollY)) return true;
+		this.setScrollAmount(this.getScrollAmount() - scrollY * this.rowHeight / 2.0);
+		return true;
+	}
+
+	/* Rendering */
+
+	@Override
+	protected void renderBackground(DrawContext drawContext, int mouseX, int mouseY, float delta) {
+		this.getBackground().render(drawContext, this, 0, mouseX, mouseY, delta);
+	}
+
+	@Override
+	protected void renderWidget(DrawContext drawContext, int mouseX, int mouseY, float delta) {
+		if (this.dataSource.size() != this.lastSize) {
+			this.lastSize = this.dataSource.size();
+			this.setScrollAmount(this.scrollAmount);
+		}
+
+		int thickness = this.getBorder().getThickness();
+		ScissorManager.push(this.getX() + thickness, this.getY() + thickness,
+				this.getWidth() - thickness * 2, this.getInnerHeight());
+		for (var row : this.boundRows) {
+			row.render(drawContext, mouseX, mouseY, delta);
+		}
+		ScissorManager.pop();
+
+		RenderSystem.enableBlend();
+		int maxScroll = this.getMaxScroll();
+		if (maxScroll > 0) {
+			int innerHeight = this.getInnerHeight();
+			int scrollbarHeight = (int) ((float) (innerHeight * innerHeight) / (float) this.getMaxPosition());
+			scrollbarHeight = MathHelper.clamp(scrollbarHeight, 32, innerHeight - 8);
+			int scrollbarY = (int) ((long) this.getScrollAmount() * (innerHeight - scrollbarHeight) / maxScroll)
+					+ this.getY() + thickness;
+
+			int scrollbarPositionX = this.getScrollbarPositionX();
+			this.renderScrollbar(Tessellator.getInstance(), scrollbarPositionX, scrollbarPositionX + 6, scrollbarY, scrollbarHeight);
+		}
+
+		this.getBorder().render(drawContext, this, mouseX, mouseY, delta);
+		RenderSystem.disableBlend();
+	}
+
+	protected void renderScrollbar(Tessellator tessellator, int scrollbarX, int scrollbarEndX, int scrollbarY, int scrollbarHeight) {
+		int top = this.getY() + this.getBorder().getThickness();
+		int bottom = top + this.getInnerHeight();
+
+		RenderSystem.setShader(GameRenderer::getPositionColorProgram);
+
+		BufferBuilder buffer = tessellator.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_COLOR);
+		buffer.vertex(scrollbarX, bottom, 0).color(0, 0, 0, 255);
+		buffer.vertex(scrollbarEndX, bottom, 0).color(0, 0, 0, 255);
+		buffer.vertex(scrollbarEndX, top, 0).color(0, 0, 0, 255);
+		buffer.vertex(scrollbarX, top, 0).color(0, 0, 0, 255);
+		buffer.vertex(scrollbarX, scrollbarY + scrollbarHeight, 0).color(128, 128, 128, 255);
+		buffer.vertex(scrollbarEndX, scrollbarY + scrollbarHeight, 0).color(128, 128, 128, 255);
+		buffer.vertex(scrollbarEndX, scrollbarY, 0).color(128, 128, 128, 255);
+		buffer.vertex(scrollbarX, scrollbarY, 0).color(128, 128, 128, 255);
+		buffer.vertex(scrollbarX, scrollbarY + scrollbarHeight - 1, 0).color(192, 192, 192, 255);
+		buffer.vertex(scrollbarEndX - 1, scrollbarY + scrollbarHeight - 1, 0).color(192, 192, 192, 255);
+		buffer.vertex(scrollbarEndX - 1, scrollbarY, 0).color(192, 192, 192, 255);
+		buffer.vertex(scrollbarX, scrollbarY, 0).color(192, 192, 192, 255);
+		BufferRenderer.drawWithGlobalProgram(buffer.end());
+	}
+
+	/* Narration */
+
+	@Override
+	public void appendNarrations(NarrationMessageBuilder builder) {
+		var row = this.boundRows.stream()
+				.filter(SpruceWidget::isMouseHovered)
+				.findFirst()
+				.orElse(this.getFocused());
+		if (row != null) {
+			row.appendNarrations(builder.nextMessage());
+			int index = this.getRowIndex(row);
+			if (index != -1 && this.dataSource.size() > 1) {
+				builder.put(NarrationPart.POSITION, Text.translatable("narrator.position.list", index + 1, this.dataSource.size()));
+			}
+		}
+
+		builder.put(NarrationPart.USAGE, Text.translatable("narration.component_list.usage"));
+	}
+
+	class BoundRows extends AbstractList<R> {
+		@Override
+		public R get(int index) {
+			if (index < 0 || index >= SpruceVirtualListWidget.this.boundCount)
+				throw new IndexOutOfBoundsException(index);
+			var pool = SpruceVirtualListWidget.this.pool;
+			return pool.get((SpruceVirtualListWidget.this.firstIndex + index) % pool.size());
+		}
+
+		@Override
+		public int size() {
+			return SpruceVirtualListWidget.this.boundCount;
+		}
+	}
+
+	/**
+	 * Represents the items displayed by a virtualized list.
+	 *
+	 * @param <R> the type of row widgets
+	 */
+	public interface DataSource<R> {
+		/**
+		 * Returns the number of items.
+		 *
+		 * @return the number of items
+		 */
+		int size();
+
+		/**
+		 * Binds the given row widget to the item at the given index.
+		 * <p>
+		 * Rows are recycled, the binding has to update everything the row displays.
+		 *
+		 * @param index the index of the item
+		 * @param row the row widget
+		 */
+		void bind(int index, R row);
+	}
+
+	public interface RowFactory<R> {
+		R create(Position position, int width, int height);
+	}
+}
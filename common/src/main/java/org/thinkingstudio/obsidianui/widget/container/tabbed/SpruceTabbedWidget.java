@@ -107,6 +107,12 @@ public class SpruceTabbedWidget extends AbstractSpruceParentWidget<SpruceWidget>
 		return List.of(this.list, this.list.getCurrentTab().container);
 	}
 
+	@Override
+	public void tick() {
+		// The tabs forward the ticks to their containers, including the hidden ones.
+		this.list.tick();
+	}
+
 	/* Navigation */
 
 	@Override
@@ -238,6 +244,17 @@ public class SpruceTabbedWidget extends AbstractSpruceParentWidget<SpruceWidget>
 				this.selected = true;
 		}
 
+		@Override
+		public void tick() {
+			this.container.tick();
+		}
+
+		@Override
+		public void onRemoved() {
+			super.onRemoved();
+			this.container.onRemoved();
+		}
+
 		/* Input */
 
 		@Override
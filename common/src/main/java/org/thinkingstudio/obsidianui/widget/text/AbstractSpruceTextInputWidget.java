@@ -12,6 +12,7 @@ package org.thinkingstudio.obsidianui.widget.text;
 
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
 import org.thinkingstudio.obsidianui.Position;
 import org.thinkingstudio.obsidianui.background.Background;
 import org.thinkingstudio.obsidianui.background.SimpleColorBackground;
@@ -30,6 +31,13 @@ import org.thinkingstudio.obsidianui.widget.WithBorder;
  * @since 2.1.0
  */
 public abstract class AbstractSpruceTextInputWidget extends AbstractSpruceWidget implements WithBackground, WithBorder {
+	/**
+	 * The length from which written text is inserted over several frames.
+	 */
+	protected static final int CHUNKED_INSERT_THRESHOLD = 64 * 1024;
+	private static final int INSERT_CHUNK_CHARS = 16 * 1024;
+	private static final long INSERT_BUDGET_NANOS = 4_000_000L;
+
 	private final Text title;
 	private Background background = new SimpleColorBackground(ColorUtil.BLACK);
 	private Border border = new SimpleBorder(1, -6250336, ColorUtil.WHITE);
@@ -37,6 +45,11 @@ public abstract class AbstractSpruceTextInputWidget extends AbstractSpruceWidget
 	private int editableColor = ColorUtil.TEXT_COLOR;
 	private int uneditableColor = ColorUtil.UNEDITABLE_COLOR;
 
+	private @Nullable String pendingInsert;
+	private int insertStart;
+	private int insertedLength;
+	private String insertRemoved = "";
+
 	public AbstractSpruceTextInputWidget(Position position, int width, int height, Text title) {
 		super(position);
 		this.width = width;
@@ -169,11 +182,155 @@ public abstract class AbstractSpruceTextInputWidget extends AbstractSpruceWidget
 		return this.isActive() && this.isFocused();
 	}
 
+	/* Chunked insertion */
+
+	/**
+	 * Starts inserting the given text over the next frames, in slices bounded by a time budget per frame.
+	 *
+	 * @param start the offset where the text is inserted
+	 * @param removed the text which has been removed at the offset to make room for the insertion, restored if cancelled
+	 * @param text the text to insert
+	 */
+	protected void startInsert(int start, String removed, String text) {
+		this.pendingInsert = text;
+		this.insertStart = start;
+		this.insertedLength = 0;
+		this.insertRemoved = removed;
+	}
+
+	/**
+	 * Inserts a slice of the pending text.
+	 *
+	 * @param offset the offset where the slice is inserted
+	 * @param chunk the slice
+	 * @return {@code true} if the slice has been inserted, or {@code false} if it has been rejected, which ends the insertion
+	 */
+	protected abstract boolean insertChunk(int offset, String chunk);
+
+	/**
+	 * Ends an insertion.
+	 *
+	 * @param start the offset where the text has been inserted
+	 * @param removed the text which has been removed at the offset
+	 * @param inserted the text which has been inserted
+	 * @param cancelled {@code true} if the insertion has been cancelled and must be reverted, else {@code false}
+	 */
+	protected abstract void endInsert(int start, String removed, String inserted, boolean cancelled);
+
+	/**
+	 * Returns whether a text is being inserted over several frames.
+	 *
+	 * @return {@code true} if a text is being inserted, else {@code false}
+	 */
+	public boolean isInserting() {
+		return this.pendingInsert != null;
+	}
+
+	/**
+	 * Returns the progress of the insertion.
+	 *
+	 * @return the progress between {@code 0} and {@code 1}, or {@code 1} if no text is being inserted
+	 */
+	public float getInsertProgress() {
+		return this.pendingInsert == null ? 1.f : (float) this.insertedLength / this.pendingInsert.length();
+	}
+
+	/**
+	 * Cancels the insertion, the text inserted so far is removed.
+	 */
+	public void cancelInsert() {
+		var text = this.pendingInsert;
+		if (text == null)
+			return;
+		this.pendingInsert = null;
+		this.endInsert(this.insertStart, this.insertRemoved, text.substring(0, this.insertedLength), true);
+	}
+
+	/**
+	 * Drops the insertion without reverting it, for when the whole text is replaced.
+	 */
+	protected void discardInsert() {
+		this.pendingInsert = null;
+	}
+
+	/**
+	 * Inserts slices of the pending text until the given time budget is exhausted, at least one slice is inserted.
+	 *
+	 * @param budgetNanos the time budget in nanoseconds
+	 */
+	protected void continueInsert(long budgetNanos) {
+		var text = this.pendingInsert;
+		if (text == null)
+			return;
+
+		long start = System.nanoTime();
+		boolean rejected = false;
+		do {
+			int from = this.insertedLength;
+			int end = Math.min(text.length(), from + INSERT_CHUNK_CHARS);
+			if (end < text.length()) {
+				// Slices end on a line break if possible so that lines are laid out once, and never split a surrogate pair.
+				int lineEnd = text.lastIndexOf('\n', end - 1);
+				if (lineEnd >= from)
+					end = lineEnd + 1;
+				else if (Character.isHighSurrogate(text.charAt(end - 1)))
+					end--;
+			}
+
+			if (!this.insertChunk(this.insertStart + from, text.substring(from, end))) {
+				rejected = true;
+				break;
+			}
+			this.insertedLength = end;
+		} while (this.insertedLength < text.length() && System.nanoTime() - start < budgetNanos);
+
+		if (rejected || this.insertedLength == text.length()) {
+			this.pendingInsert = null;
+			this.endInsert(this.insertStart, this.insertRemoved, text.substring(0, this.insertedLength), false);
+		}
+	}
+
+	/**
+	 * Continues the insertion while this widget is not rendered, for example in a hidden tab.
+	 */
+	@Override
+	public void tick() {
+		this.continueInsert(INSERT_BUDGET_NANOS);
+	}
+
+	/**
+	 * Cancels the insertion, as a widget removed from its screen is never rendered again.
+	 */
+	@Override
+	public void onRemoved() {
+		super.onRemoved();
+		this.cancelInsert();
+	}
+
 	/* Rendering */
 
 	@Override
 	protected void renderWidget(DrawContext drawContext, int mouseX, int mouseY, float delta) {
 		this.getBorder().render(drawContext, this, mouseX, mouseY, delta);
+
+		if (this.isInserting()) {
+			this.continueInsert(INSERT_BUDGET_NANOS);
+			this.drawInsertProgress(drawContext);
+		}
+	}
+
+	/**
+	 * Draws the progress of the insertion as a bar along the bottom border.
+	 *
+	 * @param drawContext the GUI graphics instance to render with
+	 */
+	protected void drawInsertProgress(DrawContext drawContext) {
+		if (!this.isInserting())
+			return;
+
+		int bottom = this.getY() + this.getHeight();
+		int width = (int) (this.getWidth() * this.getInsertProgress());
+		drawContext.fill(this.getX(), bottom - 2, this.getX() + width, bottom, ColorUtil.WHITE);
 	}
 
 	@Override
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.widget.text;
+
+import net.minecraft.text.Text;
+
+/**
+ * Represents a problem found in a text by a {@link TextValidator}, underlined by the text area.
+ * <p>
+ * Columns out of the bounds of the line are clamped to it, an empty range marks a single character.
+ *
+ * @param line the line of the problem
+ * @param startColumn the first column of the problem, inclusive
+ * @param endColumn the last column of the problem, exclusive
+ * @param severity the severity of the problem
+ * @param message the message shown when hovering the problem
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public record Diagnostic(int line, int startColumn, int endColumn, Severity severity, Text message) {
+	public Diagnostic {
+		if (line < 0 || startColumn < 0 || endColumn < 0)
+			throw new IllegalArgumentException("The position of a diagnostic must not be negative.");
+	}
+
+	/**
+	 * Represents the severity of a problem.
+	 */
+	public enum Severity {
+		ERROR(0xffff5555),
+		WARNING(0xffffaa00),
+		INFO(0xff5599ff);
+
+		private final int color;
+
+		Severity(int color) {
+			this.color = color;
+		}
+
+		/**
+		 * Returns the color of the underline of the problems of this severity.
+		 *
+		 * @return the color, in ARGB format
+		 */
+		public int getColor() {
+			return this.color;
+		}
+	}
+}
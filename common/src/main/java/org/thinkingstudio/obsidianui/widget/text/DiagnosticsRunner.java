@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.widget.text;
+
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+import org.thinkingstudio.obsidianui.util.TextRope;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs a {@link TextValidator} in the background once the text has not been edited for a delay.
+ * <p>
+ * A run is cancelled as soon as the text is edited, its result would be stale.
+ * The diagnostics of the last completed run are kept as markers until the next one completes,
+ * and are shifted through the edits made in the meantime so they stay on the text they were reported for.
+ *
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+final class DiagnosticsRunner {
+	private final TextValidator validator;
+	private final Executor executor;
+	private long delay;
+	private @Nullable TextRope text;
+	private long editTime;
+	private boolean pending = false;
+	private @Nullable CompletableFuture<List<Diagnostic>> task;
+	private @Nullable TextRope taskText;
+	private List<Marker> markers = List.of();
+	/**
+	 * The greatest end of the markers up to each index, to binary-search the markers by their end.
+	 */
+	private int[] maxEnds = new int[0];
+	/**
+	 * The length of the text the markers are placed in.
+	 */
+	private int markedLength;
+
+	DiagnosticsRunner(TextValidator validator, Executor executor, long delay) {
+		this.validator = validator;
+		this.executor = executor;
+		this.delay = delay;
+	}
+
+	TextValidator getValidator() {
+		return this.validator;
+	}
+
+	void setDelay(long delay) {
+		this.delay = delay;
+	}
+
+	/**
+	 * Returns the markers of the last completed run, sorted by their start.
+	 *
+	 * @return the markers
+	 */
+	List<Marker> getMarkers() {
+		return this.markers;
+	}
+
+	/**
+	 * Returns the index of the first marker which may end at or after the given offset.
+	 * Every marker before this index ends before the offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first marker to consider, or the marker count if none ends at or after the offset
+	 */
+	int findFirstEndingAt(int offset) {
+		int low = 0;
+		int high = this.maxEnds.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.maxEnds[middle] < offset)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the index of the first marker starting after the given offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first marker starting after the offset, or the marker count if there is none
+	 */
+	int findFirstStartingAfter(int offset) {
+		int low = 0;
+		int high = this.markers.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.markers.get(middle).start() <= offset)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	private void setMarkers(List<Marker> markers) {
+		this.markers = markers;
+		var maxEnds = new int[markers.size()];
+		int maxEnd = Integer.MIN_VALUE;
+		for (int i = 0; i < maxEnds.length; i++) {
+			maxEnd = Math.max(maxEnd, markers.get(i).end());
+			maxEnds[i] = maxEnd;
+		}
+		this.maxEnds = maxEnds;
+	}
+
+	/**
+	 * Publishes the completed run if any, and starts a new run once the text has not been edited for the delay.
+	 * Must be called from the client thread.
+	 *
+	 * @param text the current text
+	 */
+	void update(TextRope text) {
+		long now = Util.getMeasuringTimeMs();
+		if (text != this.text) {
+			this.text = text;
+			this.editTime = now;
+			this.pending = true;
+			if (this.task != null) {
+				this.task.cancel(false);
+				this.task = null;
+			}
+		}
+
+		var task = this.task;
+		if (task != null && task.isDone()) {
+			this.task = null;
+			if (!task.isCompletedExceptionally()) {
+				this.setMarkers(toMarkers(this.taskText, task.join()));
+				this.markedLength = this.taskText.length();
+			}
+		}
+
+		if (this.pending && this.task == null && now - this.editTime >= this.delay) {
+			this.pending = false;
+			this.taskText = text;
+			var future = new CompletableFuture<List<Diagnostic>>();
+			this.executor.execute(() -> {
+				if (future.isDone())
+					return;
+				try {
+					future.complete(this.validator.validate(text, future::isDone));
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+			this.task = future;
+		}
+	}
+
+	/**
+	 * Shifts the markers through an edit of the text.
+	 * <p>
+	 * The bounds of a marker inside the replaced range move to the end of the replacement,
+	 * and the markers are dropped if the whole text has been replaced.
+	 *
+	 * @see org.thinkingstudio.obsidianui.util.MultilineText.EditListener#onTextReplaced(int, int, int)
+	 */
+	void onTextReplaced(int start, int removedLength, int insertedLength) {
+		if (this.markers.isEmpty())
+			return;
+		if (start == 0 && removedLength == this.markedLength) {
+			this.setMarkers(List.of());
+			return;
+		}
+
+		int end = start + removedLength;
+		var markers = new ArrayList<Marker>(this.markers.size());
+		for (var marker : this.markers) {
+			if (marker.end() < start) {
+				markers.add(marker);
+				continue;
+			}
+			markers.add(new Marker(shift(marker.start(), start, end, insertedLength),
+					shift(marker.end(), start, end, insertedLength), marker.diagnostic()));
+		}
+		// The shift is monotonic, so the markers stay sorted.
+		this.setMarkers(markers);
+		this.markedLength += insertedLength - removedLength;
+	}
+
+	private static int shift(int offset, int start, int end, int insertedLength) {
+		if (offset <= start)
+			return offset;
+		if (offset >= end)
+			return offset + insertedLength - (end - start);
+		return start + insertedLength;
+	}
+
+	/**
+	 * Cancels the current run.
+	 */
+	void cancel() {
+		if (this.task != null) {
+			this.task.cancel(false);
+			this.task = null;
+		}
+	}
+
+	private static List<Marker> toMarkers(TextRope text, List<Diagnostic> diagnostics) {
+		var markers = new ArrayList<Marker>(diagnostics.size());
+		int lineCount = text.getLineCount();
+		for (var diagnostic : diagnostics) {
+			int line = Math.min(diagnostic.line(), lineCount - 1);
+			int lineStart = text.getLineStart(line);
+			int length = text.getLineEnd(line) - lineStart;
+			int start = Math.min(diagnostic.startColumn(), length);
+			int end = Math.min(Math.max(diagnostic.endColumn(), start), length);
+			if (end == start && end < length)
+				end++;
+			markers.add(new Marker(lineStart + start, lineStart + end, diagnostic));
+		}
+		markers.sort(Comparator.comparingInt(Marker::start));
+		return markers;
+	}
+
+	/**
+	 * Represents a diagnostic placed in the text.
+	 *
+	 * @param start the start offset of the marker, inclusive
+	 * @param end the end offset of the marker, exclusive
+	 * @param diagnostic the diagnostic
+	 */
+	record Marker(int start, int end, Diagnostic diagnostic) {
+	}
+}
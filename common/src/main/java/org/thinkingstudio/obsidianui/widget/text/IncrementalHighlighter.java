@@ -0,0 +1,398 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.widget.text;
+
+import net.minecraft.text.OrderedText;
+import net.minecraft.text.Style;
+import org.jetbrains.annotations.Nullable;
+import org.thinkingstudio.obsidianui.util.MultilineText;
+import org.thinkingstudio.obsidianui.util.TextRope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs a {@link SyntaxHighlighter} over the text of a text area in the background.
+ * <p>
+ * Each pass highlights an immutable snapshot of the text, starting from the first line edited since the previous pass
+ * and reusing the previous results once the lexer state converges. Only one pass runs at a time,
+ * its result is published to the client thread through a volatile field.
+ * <p>
+ * The results are stored in chunks of lines which are never modified once published, so a pass shares the chunks
+ * before the first edited line with the previous result, and also the chunks after the converged line
+ * if the line count did not change. Only the chunks of the highlighted lines are copied.
+ * <p>
+ * Until a pass completes, the lines which have not been edited keep their previous highlighting,
+ * and the edited lines keep the highlighting of the line previously at their index.
+ *
+ * @param <S> the type of the lexer state
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+final class IncrementalHighlighter<S> {
+	private static final LineHighlight EMPTY_LINE = new LineHighlight(new int[0], new Style[0]);
+	private static final int CHUNK_SHIFT = 8;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/**
+	 * The marker of a failed pass.
+	 */
+	private static final Result FAILED = new Result(0, new Object[0][], new LineHighlight[0][]);
+
+	private final SyntaxHighlighter<S> highlighter;
+	private final Executor executor;
+	/**
+	 * The edits since the text of the published result.
+	 */
+	private final DirtyRange publishedEdits = new DirtyRange();
+	/**
+	 * The edits since the text of the last started pass.
+	 */
+	private final DirtyRange pendingEdits = new DirtyRange();
+	private @Nullable Result published;
+	private volatile @Nullable Result completed;
+	private @Nullable TextRope passText;
+	private boolean running = false;
+
+	private OrderedText[] rowKeys = new OrderedText[0];
+	private LineHighlight[] rowHighlights = new LineHighlight[0];
+	private OrderedText[] rowTexts = new OrderedText[0];
+	private @Nullable TextRope[] sliceSources = new TextRope[0];
+	private int[] sliceBounds = new int[0];
+	private LineHighlight[] sliceHighlights = new LineHighlight[0];
+	private OrderedText[] sliceTexts = new OrderedText[0];
+
+	IncrementalHighlighter(SyntaxHighlighter<S> highlighter, Executor executor) {
+		this.highlighter = highlighter;
+		this.executor = executor;
+	}
+
+	/**
+	 * Records an edit of the text.
+	 *
+	 * @see MultilineText.EditListener
+	 */
+	void onLinesReplaced(int firstLine, int removedLines, int insertedLines, int lineCount) {
+		this.publishedEdits.add(firstLine, insertedLines, lineCount);
+		this.pendingEdits.add(firstLine, insertedLines, lineCount);
+	}
+
+	/**
+	 * Publishes the completed pass if any, and starts a new pass if the text changed since the last one.
+	 * Must be called from the client thread.
+	 *
+	 * @param text the current text
+	 */
+	void update(TextRope text) {
+		var completed = this.completed;
+		if (completed != null) {
+			this.completed = null;
+			this.running = false;
+			if (completed == FAILED) {
+				// Starts over from scratch.
+				this.published = null;
+				this.passText = null;
+			} else {
+				this.published = completed;
+				this.publishedEdits.set(this.pendingEdits);
+			}
+		}
+
+		if (this.running || text == this.passText)
+			return;
+
+		var previous = this.published;
+		int start = this.pendingEdits.start;
+		int suffix = this.pendingEdits.suffix;
+		this.pendingEdits.clear();
+		this.passText = text;
+		this.running = true;
+
+		CompletableFuture.supplyAsync(() -> this.highlight(text, previous, start, suffix), this.executor)
+				.whenComplete((result, error) -> this.completed = error != null ? FAILED : result);
+	}
+
+	/**
+	 * Returns the text to render of the given row, highlighted with the latest published result.
+	 *
+	 * @param lines the text
+	 * @param row the row
+	 * @param slot the index of the row on screen, used to cache the text
+	 * @param slots the number of rows on screen
+	 * @return the text to render
+	 */
+	OrderedText getRowText(MultilineText lines, int row, int slot, int slots) {
+		var plain = lines.getRowText(row);
+		int line = lines.getLineAtRow(row);
+		var highlight = this.getLineHighlight(line, lines.getBuffer().getLineCount());
+		if (highlight == null || highlight.styles.length == 0)
+			return plain;
+
+		if (this.rowTexts.length != slots) {
+			this.rowKeys = new OrderedText[slots];
+			this.rowHighlights = new LineHighlight[slots];
+			this.rowTexts = new OrderedText[slots];
+		}
+
+		if (this.rowKeys[slot] != plain || this.rowHighlights[slot] != highlight) {
+			int rowStart = lines.getRowStart(row) - lines.getBuffer().getLineStart(line);
+			int rowEnd = rowStart + lines.getRowLength(row);
+			this.rowKeys[slot] = plain;
+			this.rowHighlights[slot] = highlight;
+			this.rowTexts[slot] = highlight.style(lines.getBuffer().getLine(line), rowStart, rowEnd);
+		}
+		return this.rowTexts[slot];
+	}
+
+	/**
+	 * Returns the text to render of the given columns of the given row, highlighted with the latest published result.
+	 *
+	 * @param lines the text
+	 * @param row the row
+	 * @param startColumn the first column, inclusive
+	 * @param endColumn the last column, exclusive
+	 * @param slot the index of the row on screen, used to cache the text
+	 * @param slots the number of rows on screen
+	 * @return the text to render
+	 */
+	OrderedText getRowSliceText(MultilineText lines, int row, int startColumn, int endColumn, int slot, int slots) {
+		if (this.sliceTexts.length != slots) {
+			this.sliceSources = new TextRope[slots];
+			this.sliceBounds = new int[slots * 2];
+			this.sliceHighlights = new LineHighlight[slots];
+			this.sliceTexts = new OrderedText[slots];
+		}
+
+		var buffer = lines.getBuffer();
+		int line = lines.getLineAtRow(row);
+		int lineStart = buffer.getLineStart(line);
+		int start = lines.getRowStart(row) + startColumn;
+		int end = lines.getRowStart(row) + endColumn;
+		var highlight = this.getLineHighlight(line, buffer.getLineCount());
+		if (this.sliceSources[slot] != buffer || this.sliceBounds[slot * 2] != start || this.sliceBounds[slot * 2 + 1] != end
+				|| this.sliceHighlights[slot] != highlight || this.sliceTexts[slot] == null) {
+			var text = buffer.getLine(line);
+			this.sliceSources[slot] = buffer;
+			this.sliceBounds[slot * 2] = start;
+			this.sliceBounds[slot * 2 + 1] = end;
+			this.sliceHighlights[slot] = highlight;
+			this.sliceTexts[slot] = highlight == null
+					? OrderedText.styledForwardsVisitedString(text.substring(start - lineStart, end - lineStart), Style.EMPTY)
+					: highlight.style(text, start - lineStart, end - lineStart);
+		}
+		return this.sliceTexts[slot];
+	}
+
+	private @Nullable LineHighlight getLineHighlight(int line, int lineCount) {
+		var result = this.published;
+		if (result == null)
+			return null;
+
+		int previousCount = result.lineCount;
+		if (line >= this.publishedEdits.start && lineCount - line <= this.publishedEdits.suffix) {
+			// The line has not been edited since the result.
+			line -= lineCount - previousCount;
+		}
+		return line < previousCount ? result.getLine(line) : null;
+	}
+
+	/**
+	 * Highlights the given text, called off the client thread.
+	 *
+	 * @param text the text
+	 * @param previous the result of the previous pass
+	 * @param start the first line edited since the previous pass
+	 * @param suffix the number of lines at the end of the text not edited since the previous pass
+	 * @return the result
+	 */
+	private Result highlight(TextRope text, @Nullable Result previous, int start, int suffix) {
+		int count = text.getLineCount();
+		var result = new Result(count, new Object[(count + CHUNK_MASK) >> CHUNK_SHIFT][],
+				new LineHighlight[(count + CHUNK_MASK) >> CHUNK_SHIFT][]);
+		var initialState = this.highlighter.getInitialState();
+
+		int previousCount = 0;
+		if (previous == null) {
+			start = 0;
+			suffix = 0;
+		} else {
+			previousCount = previous.lineCount;
+			start = Math.min(start, Math.min(count, previousCount));
+			suffix = Math.min(suffix, Math.min(count, previousCount) - start);
+			// The chunks before the first edited line are shared, the chunk holding it is copied when first written.
+			result.share(previous, 0, (start + CHUNK_MASK) >> CHUNK_SHIFT);
+		}
+		// Whether each chunk has been allocated by this pass, and may then be written.
+		var owned = new boolean[result.states.length];
+
+		@SuppressWarnings("unchecked")
+		S state = start == 0 ? initialState : (S) result.getState(start - 1);
+		var spans = new SpanCollector();
+		var it = text.lines(start);
+		for (int line = start; line < count; line++) {
+			if (count - line <= suffix) {
+				int previousLine = line - count + previousCount;
+				var previousState = previousLine == 0 ? initialState : previous.getState(previousLine - 1);
+				if (Objects.equals(state, previousState)) {
+					// The lexer converged, the remaining lines are highlighted as before.
+					int copyEnd = count;
+					if (previousLine == line) {
+						// The lines are at the same index, the chunks after the current one are shared.
+						int firstShared = (line + CHUNK_MASK) >> CHUNK_SHIFT;
+						result.share(previous, firstShared, result.states.length);
+						copyEnd = Math.min(count, firstShared << CHUNK_SHIFT);
+					}
+					for (; line < copyEnd; line++, previousLine++) {
+						result.set(owned, line, previous.getState(previousLine), previous.getLine(previousLine));
+					}
+					break;
+				}
+			}
+
+			state = this.highlighter.highlightLine(it.next(), state, spans);
+			result.set(owned, line, state, spans.build());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Represents the result of a pass, by chunks of {@link #CHUNK_SIZE} lines.
+	 *
+	 * @param lineCount the number of lines
+	 * @param states the lexer state at the end of each line
+	 * @param lines the highlighting of each line
+	 */
+	private record Result(int lineCount, Object[][] states, LineHighlight[][] lines) {
+		Object getState(int line) {
+			return this.states[line >> CHUNK_SHIFT][line & CHUNK_MASK];
+		}
+
+		LineHighlight getLine(int line) {
+			return this.lines[line >> CHUNK_SHIFT][line & CHUNK_MASK];
+		}
+
+		/**
+		 * Shares the given chunks of the given result, which are never modified once published.
+		 */
+		void share(Result other, int fromChunk, int toChunk) {
+			toChunk = Math.min(toChunk, Math.min(this.states.length, other.states.length));
+			for (int chunk = fromChunk; chunk < toChunk; chunk++) {
+				this.states[chunk] = other.states[chunk];
+				this.lines[chunk] = other.lines[chunk];
+			}
+		}
+
+		/**
+		 * Sets the result of a line, the chunk holding it is copied or allocated first if it is not owned.
+		 */
+		void set(boolean[] owned, int line, Object state, LineHighlight highlight) {
+			int chunk = line >> CHUNK_SHIFT;
+			if (!owned[chunk]) {
+				this.states[chunk] = this.states[chunk] == null ? new Object[CHUNK_SIZE] : this.states[chunk].clone();
+				this.lines[chunk] = this.lines[chunk] == null ? new LineHighlight[CHUNK_SIZE] : this.lines[chunk].clone();
+				owned[chunk] = true;
+			}
+			this.states[chunk][line & CHUNK_MASK] = state;
+			this.lines[chunk][line & CHUNK_MASK] = highlight;
+		}
+	}
+
+	/**
+	 * Represents the style spans of a line.
+	 *
+	 * @param bounds the start and end of each span
+	 * @param styles the style of each span
+	 */
+	private record LineHighlight(int[] bounds, Style[] styles) {
+		/**
+		 * Styles a part of the given line.
+		 * <p>
+		 * The line may have been edited since it has been highlighted, the spans are clipped to it.
+		 */
+		OrderedText style(String line, int start, int end) {
+			var parts = new ArrayList<OrderedText>();
+			int position = start;
+			for (int i = 0; i < this.styles.length; i++) {
+				int spanStart = Math.max(this.bounds[i * 2], position);
+				int spanEnd = Math.min(this.bounds[i * 2 + 1], end);
+				if (spanStart >= spanEnd)
+					continue;
+
+				if (spanStart > position)
+					parts.add(OrderedText.styledForwardsVisitedString(line.substring(position, spanStart), Style.EMPTY));
+				parts.add(OrderedText.styledForwardsVisitedString(line.substring(spanStart, spanEnd), this.styles[i]));
+				position = spanEnd;
+			}
+			if (position < end)
+				parts.add(OrderedText.styledForwardsVisitedString(line.substring(position, end), Style.EMPTY));
+			return OrderedText.concat(parts);
+		}
+	}
+
+	private static class SpanCollector implements SyntaxHighlighter.SpanConsumer {
+		private int[] bounds = new int[16];
+		private Style[] styles = new Style[8];
+		private int size = 0;
+
+		@Override
+		public void accept(int start, int end, Style style) {
+			if (start >= end)
+				return;
+			if (style.isBold() || (style.getFont() != null && !Style.DEFAULT_FONT_ID.equals(style.getFont()))) {
+				// The rows are measured unstyled, a bold or another font would misplace the columns.
+				style = style.withBold(false).withFont(Style.DEFAULT_FONT_ID);
+			}
+			if (this.size == this.styles.length) {
+				this.bounds = Arrays.copyOf(this.bounds, this.size * 4);
+				this.styles = Arrays.copyOf(this.styles, this.size * 2);
+			}
+			this.bounds[this.size * 2] = start;
+			this.bounds[this.size * 2 + 1] = end;
+			this.styles[this.size++] = style;
+		}
+
+		LineHighlight build() {
+			if (this.size == 0)
+				return EMPTY_LINE;
+			var highlight = new LineHighlight(Arrays.copyOf(this.bounds, this.size * 2), Arrays.copyOf(this.styles, this.size));
+			this.size = 0;
+			return highlight;
+		}
+	}
+
+	/**
+	 * Represents the lines edited since a text, as the first edited line and the number of lines at the end of the text
+	 * which have not been edited. The lines in between may have been edited.
+	 */
+	private static class DirtyRange {
+		int start = Integer.MAX_VALUE;
+		int suffix = Integer.MAX_VALUE;
+
+		void add(int firstLine, int insertedLines, int lineCount) {
+			this.start = Math.min(this.start, firstLine);
+			this.suffix = Math.min(this.suffix, lineCount - firstLine - insertedLines);
+		}
+
+		void set(DirtyRange other) {
+			this.start = other.start;
+			this.suffix = other.suffix;
+		}
+
+		void clear() {
+			this.start = Integer.MAX_VALUE;
+			this.suffix = Integer.MAX_VALUE;
+		}
+	}
+}
@@ -17,40 +17,113 @@ import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.render.*;
+import net.minecraft.text.OrderedText;
+import net.minecraft.text.Style;
 import net.minecraft.text.Text;
 import net.minecraft.util.StringHelper;
+import net.minecraft.util.Util;
 import net.minecraft.util.math.MathHelper;
 import org.jetbrains.annotations.Nullable;
 import org.lwjgl.glfw.GLFW;
 import org.thinkingstudio.obsidianui.Position;
+import org.thinkingstudio.obsidianui.Tooltip;
 import org.thinkingstudio.obsidianui.border.Border;
 import org.thinkingstudio.obsidianui.navigation.NavigationDirection;
 import org.thinkingstudio.obsidianui.util.ColorUtil;
 import org.thinkingstudio.obsidianui.util.MultilineText;
-
-import java.util.Arrays;
+import org.thinkingstudio.obsidianui.util.ScissorManager;
+import org.thinkingstudio.obsidianui.util.TextFiles;
+import org.thinkingstudio.obsidianui.util.TextRope;
+import org.thinkingstudio.obsidianui.util.TextSearch;
+import org.thinkingstudio.obsidianui.util.UndoHistory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a text area widget.
  *
  * @author LambdAurora
- * @version 5.0.0
+ * @version 5.1.0
  * @since 1.6.3
  */
 public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
+	/**
+	 * The time budget of each frame to rewrap the lines outside the displayed area, in nanoseconds.
+	 */
+	private static final long WRAP_BUDGET_NANOS = 2_000_000L;
+	/**
+	 * The time budget of each frame to decode a loading file, in nanoseconds.
+	 */
+	private static final long LOAD_BUDGET_NANOS = 4_000_000L;
+	private static final int LOAD_CHUNK_CHARS = 64 * 1024;
+	private static final int SEARCH_MATCH_COLOR = 0x60ffd700;
+	private static final int HORIZONTAL_SCROLL_STEP = 24;
+	/**
+	 * The default time without edits after which the text is validated, in milliseconds.
+	 */
+	public static final long DEFAULT_VALIDATION_DELAY = 300L;
+
 	private final TextRenderer textRenderer;
 	private final MultilineText lines;
 	private final Cursor cursor = new Cursor(true);
 	private final Selection selection = new Selection();
+	private final UndoHistory history = new UndoHistory();
+	/**
+	 * The additional cursors, besides the main cursor and selection.
+	 */
+	private final List<Caret> carets = new ArrayList<>();
+	private @Nullable TextFiles.Reader loader;
+	private @Nullable CompletableFuture<Void> loading;
+	private String lineSeparator = "\n";
+	private @Nullable SyntaxHighlighter<?> syntaxHighlighter;
+	private @Nullable IncrementalHighlighter<?> highlighting;
+	private @Nullable TextSearch search;
+	private @Nullable TextSearch.Matches searchMatches;
+	private @Nullable CompletableFuture<TextSearch.Matches> searchTask;
+	private @Nullable TextRope searchedText;
+	private @Nullable DiagnosticsRunner diagnostics;
+	private long validationDelay = DEFAULT_VALIDATION_DELAY;
 	private int firstLine = 0;
 	private int displayedLines;
+	/**
+	 * The horizontal scroll of unwrapped lines, in pixels.
+	 */
+	private int horizontalScroll = 0;
+	/**
+	 * The cursor position the horizontal scroll last followed.
+	 */
+	private int followedPosition = -1;
+	/**
+	 * The displayed slices of unwrapped rows, by row on screen.
+	 */
+	private RowSlice[] rowSlices = new RowSlice[0];
 
 	public SpruceTextAreaWidget(Position position, int width, int height, Text title) {
 		super(position, width, height, title);
 		this.textRenderer = this.client.textRenderer;
 		this.displayedLines = this.getInnerHeight() / this.textRenderer.fontHeight;
 		this.lines = new MultilineText(this.getInnerWidth());
+		this.lines.setEditListener(new MultilineText.EditListener() {
+			@Override
+			public void onLinesReplaced(int firstLine, int removedLines, int insertedLines) {
+				var highlighting = SpruceTextAreaWidget.this.highlighting;
+				if (highlighting != null)
+					highlighting.onLinesReplaced(firstLine, removedLines, insertedLines, SpruceTextAreaWidget.this.lines.getBuffer().getLineCount());
+			}
+
+			@Override
+			public void onTextReplaced(int start, int removedLength, int insertedLength) {
+				var diagnostics = SpruceTextAreaWidget.this.diagnostics;
+				if (diagnostics != null)
+					diagnostics.onTextReplaced(start, removedLength, insertedLength);
+			}
+		});
 		this.cursor.toStart();
 		this.sanitize();
 	}
@@ -70,7 +143,11 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 	 * @param lines the lines
 	 */
 	public void setLines(List<String> lines) {
+		this.stopLoading();
+		this.discardInsert();
 		this.lines.setLines(lines);
+		this.history.clear();
+		this.carets.clear();
 		this.selection.active = false;
 		this.setCursorToEnd();
 	}
@@ -82,26 +159,259 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 
 	@Override
 	public void setText(@Nullable String text) {
-		this.lines.clear();
-		if (text != null)
-			this.lines.setText(text);
+		this.stopLoading();
+		this.discardInsert();
+		this.lines.setText(text == null ? "" : text);
+		this.history.clear();
+		this.carets.clear();
+		this.selection.cancel();
+		this.sanitize();
+	}
+
+	/**
+	 * Loads the text of the given file.
+	 * <p>
+	 * The beginning of the file is shown immediately, the rest is decoded and wrapped over the next frames,
+	 * during which the text area is not editable.
+	 * The file is kept open until it is fully loaded, the loading is cancelled if the text is replaced
+	 * or if the text area is removed from its screen.
+	 *
+	 * @param path the path of the file
+	 * @return the future completed once the file is fully loaded
+	 * @throws IOException if the file cannot be opened
+	 * @see #isLoading()
+	 */
+	public CompletableFuture<Void> loadFile(Path path) throws IOException {
+		var loader = TextFiles.read(path);
+		this.setText("");
+		var loading = new CompletableFuture<Void>();
+		this.loader = loader;
+		this.loading = loading;
+		this.continueLoading(0);
+		return loading;
+	}
+
+	/**
+	 * Saves the text to the given file off the client thread.
+	 * <p>
+	 * The file is written to a temporary file first, which then replaces the given file atomically.
+	 *
+	 * @param path the path of the file
+	 * @return the future completed once the file is saved
+	 * @throws IllegalStateException if a file is being loaded
+	 */
+	public CompletableFuture<Void> saveFile(Path path) {
+		if (this.loader != null)
+			throw new IllegalStateException("Cannot save the text area while a file is being loaded.");
+
+		var text = this.lines.getBuffer();
+		var lineSeparator = this.lineSeparator;
+		return CompletableFuture.runAsync(() -> {
+			try {
+				TextFiles.write(text, path, lineSeparator);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, Util.getIoWorkerExecutor());
+	}
+
+	/**
+	 * Returns whether a file is being loaded.
+	 *
+	 * @return {@code true} if a file is being loaded, else {@code false}
+	 */
+	public boolean isLoading() {
+		return this.loader != null;
+	}
+
+	/**
+	 * Returns the line separator used to save the text, which is the one of the last loaded file.
+	 *
+	 * @return the line separator
+	 */
+	public String getLineSeparator() {
+		return this.lineSeparator;
+	}
+
+	/**
+	 * Sets the line separator used to save the text.
+	 *
+	 * @param lineSeparator the line separator
+	 */
+	public void setLineSeparator(String lineSeparator) {
+		this.lineSeparator = lineSeparator;
+	}
+
+	/**
+	 * Returns the syntax highlighter of this text area.
+	 *
+	 * @return the syntax highlighter, or {@code null} if the text is not highlighted
+	 */
+	public @Nullable SyntaxHighlighter<?> getSyntaxHighlighter() {
+		return this.syntaxHighlighter;
+	}
+
+	/**
+	 * Sets the syntax highlighter of this text area.
+	 * <p>
+	 * The text is highlighted in the background, edits only highlight the lines whose lexer state changed.
+	 *
+	 * @param syntaxHighlighter the syntax highlighter, or {@code null} to not highlight the text
+	 */
+	public void setSyntaxHighlighter(@Nullable SyntaxHighlighter<?> syntaxHighlighter) {
+		this.syntaxHighlighter = syntaxHighlighter;
+		this.highlighting = syntaxHighlighter == null ? null
+				: new IncrementalHighlighter<>(syntaxHighlighter, Util.getMainWorkerExecutor());
+	}
+
+	/**
+	 * Returns the validator of this text area.
+	 *
+	 * @return the validator, or {@code null} if the text is not validated
+	 */
+	public @Nullable TextValidator getValidator() {
+		return this.diagnostics == null ? null : this.diagnostics.getValidator();
+	}
+
+	/**
+	 * Sets the validator of this text area.
+	 * <p>
+	 * The text is validated in the background once it has not been edited for the validation delay,
+	 * a validation still running when the text is edited is cancelled.
+	 * The diagnostics are underlined and their message is shown when hovered.
+	 *
+	 * @param validator the validator, or {@code null} to not validate the text
+	 */
+	public void setValidator(@Nullable TextValidator validator) {
+		if (this.diagnostics != null)
+			this.diagnostics.cancel();
+		this.diagnostics = validator == null ? null
+				: new DiagnosticsRunner(validator, Util.getMainWorkerExecutor(), this.validationDelay);
+	}
+
+	/**
+	 * Returns the time without edits after which the text is validated.
+	 *
+	 * @return the validation delay in milliseconds
+	 */
+	public long getValidationDelay() {
+		return this.validationDelay;
+	}
+
+	/**
+	 * Sets the time without edits after which the text is validated.
+	 *
+	 * @param validationDelay the validation delay in milliseconds
+	 */
+	public void setValidationDelay(long validationDelay) {
+		this.validationDelay = Math.max(0L, validationDelay);
+		if (this.diagnostics != null)
+			this.diagnostics.setDelay(this.validationDelay);
+	}
+
+	/**
+	 * Returns the diagnostics of the last completed validation.
+	 * <p>
+	 * They are kept until the next validation completes, their underlines follow the edits made since,
+	 * but their lines and columns are those of the validated text.
+	 *
+	 * @return the diagnostics
+	 */
+	public List<Diagnostic> getDiagnostics() {
+		if (this.diagnostics == null)
+			return List.of();
+		return this.diagnostics.getMarkers().stream().map(DiagnosticsRunner.Marker::diagnostic).toList();
+	}
+
+	/**
+	 * Decodes the loading file until the given time budget is exhausted, at least one chunk is decoded.
+	 *
+	 * @param budgetNanos the time budget in nanoseconds
+	 */
+	private void continueLoading(long budgetNanos) {
+		var loader = this.loader;
+		if (loader == null)
+			return;
+
+		long start = System.nanoTime();
+		try {
+			do {
+				var chunk = loader.read(LOAD_CHUNK_CHARS);
+				if (!chunk.isEmpty()) {
+					int length = this.lines.length();
+					this.lines.replace(length, length, chunk);
+				}
+			} while (!loader.isDone() && System.nanoTime() - start < budgetNanos);
+		} catch (IOException e) {
+			// The text loaded so far is kept.
+			var loading = this.loading;
+			this.loader = null;
+			this.loading = null;
+			if (loading != null)
+				loading.completeExceptionally(e);
+			return;
+		}
+
+		this.lineSeparator = loader.getLineSeparator();
+		if (loader.isDone()) {
+			var loading = this.loading;
+			this.loader = null;
+			this.loading = null;
+			if (loading != null)
+				loading.complete(null);
+		}
+	}
+
+	/**
+	 * Stops loading the file being loaded if any, which closes it.
+	 */
+	private void stopLoading() {
+		var loader = this.loader;
+		if (loader == null)
+			return;
+
+		this.loader = null;
+		try {
+			loader.close();
+		} catch (IOException ignored) {
+			// The file is only read, nothing is lost if it fails to close.
+		}
+		if (this.loading != null) {
+			this.loading.cancel(false);
+			this.loading = null;
+		}
+	}
+
+	/**
+	 * Stops loading the file, as a text area removed from its screen is never rendered again.
+	 */
+	@Override
+	public void onRemoved() {
+		super.onRemoved();
+		this.stopLoading();
 	}
 
 	/**
 	 * Clears the text area.
 	 */
 	public void clear() {
+		this.stopLoading();
+		this.discardInsert();
 		this.lines.clear();
+		this.history.clear();
+		this.carets.clear();
 		this.sanitize();
 	}
 
 	/**
 	 * Returns whether this text area is editable or not.
+	 * <p>
+	 * A text area is not editable while a file is being loaded or a large text is being inserted.
 	 *
 	 * @return {@code true} if editable, else {@code false}
 	 */
 	public boolean isEditable() {
-		return this.isActive();
+		return this.isActive() && this.loader == null && !this.isInserting();
 	}
 
 	/**
@@ -114,6 +424,47 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 		this.setActive(editable);
 	}
 
+	/**
+	 * Returns whether the lines are wrapped to the width of this text area.
+	 *
+	 * @return {@code true} if the lines are wrapped, or {@code false} if the text area scrolls horizontally
+	 */
+	public boolean isWrapping() {
+		return this.lines.isWrapping();
+	}
+
+	/**
+	 * Sets whether the lines are wrapped to the width of this text area.
+	 * <p>
+	 * Without wrapping, each line is a single row and the text area scrolls horizontally.
+	 * Only the part of the lines inside the text area is then measured and drawn, which suits very long lines.
+	 *
+	 * @param wrapping {@code true} to wrap the lines, or {@code false} to scroll horizontally
+	 */
+	public void setWrapping(boolean wrapping) {
+		this.lines.setWrapping(wrapping);
+		this.horizontalScroll = 0;
+		this.followedPosition = -1;
+	}
+
+	/**
+	 * Returns where the lines of this text area are broken into rows.
+	 *
+	 * @return the wrap mode
+	 */
+	public MultilineText.WrapMode getWrapMode() {
+		return this.lines.getWrapMode();
+	}
+
+	/**
+	 * Sets where the lines of this text area are broken into rows.
+	 *
+	 * @param wrapMode the wrap mode
+	 */
+	public void setWrapMode(MultilineText.WrapMode wrapMode) {
+		this.lines.setWrapMode(wrapMode);
+	}
+
 	/**
 	 * Sets the number of displayed lines.
 	 *
@@ -144,153 +495,420 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 		this.cursor.toEnd();
 	}
 
-	private void insertCharacter(char character) {
-		if (this.lines.isEmpty()) {
-			this.lines.add(String.valueOf(character));
-			this.setCursorToStart();
-			return;
-		} else {
-			this.selection.erase();
-		}
+	/**
+	 * Replaces the text between the given offsets and moves the cursor after the replacement.
+	 *
+	 * @param start the start offset, inclusive
+	 * @param end the end offset, exclusive
+	 * @param text the replacement text
+	 */
+	private void replace(int start, int end, String text) {
+		this.history.record(start, this.lines.substring(start, end), text);
+		this.lines.replace(start, end, text);
+		this.carets.replaceAll(caret -> caret.shift(start, end, text.length()));
+		this.cursor.setPosition(start + text.length());
+	}
 
-		if (character == '\n') {
-			String line;
-			if (this.cursor.row == this.lines.size() - 1 && (line = this.lines.get(this.cursor.row)) != null && this.cursor.column >= line.length() - 1) {
-				int currentRow = this.cursor.row;
-				if (!line.endsWith("\n"))
-					this.lines.replaceRow(currentRow, s -> s + "\n");
-				this.lines.add(currentRow + 1, "");
-				this.cursor.moveDown();
-				return;
+	/**
+	 * Replaces the text around every cursor, as a single undo step.
+	 * <p>
+	 * Each cursor replaces its selection if it has one, else the given number of characters around it.
+	 * The replacements are applied from the last cursor to the first, so the offsets of the cursors before
+	 * are left untouched, and each only rewraps the lines it touches.
+	 *
+	 * @param before the number of characters before a cursor without selection to replace
+	 * @param after the number of characters after a cursor without selection to replace
+	 * @param text the replacement text
+	 */
+	private void replaceAtCursors(int before, int after, String text) {
+		var main = this.selection.isEmpty()
+				? new Caret(this.cursor.getPosition(), this.cursor.getPosition())
+				: new Caret(this.selection.anchor.getPosition(), this.selection.follower.getPosition());
+		var all = new ArrayList<>(this.carets);
+		all.add(main);
+		all.sort(Comparator.comparingInt(Caret::start));
+
+		int length = this.lines.length();
+		int count = all.size();
+		var starts = new int[count];
+		var ends = new int[count];
+		boolean removes = false;
+		int previousEnd = 0;
+		for (int i = 0; i < count; i++) {
+			var caret = all.get(i);
+			int start = caret.start();
+			int end = caret.end();
+			if (start == end) {
+				start = Math.max(0, start - before);
+				end = Math.min(length, end + after);
 			}
+			// Overlapping ranges are clipped, so no character is replaced twice.
+			start = Math.max(start, previousEnd);
+			end = Math.max(end, start);
+
+			starts[i] = start;
+			ends[i] = end;
+			removes |= start < end;
+			previousEnd = end;
 		}
 
-		var text = this.getText();
-		int cursorPosition = this.cursor.getPosition();
-		int oldSize = this.lines.size();
+		if (text.isEmpty() && !removes)
+			return; // Nothing is removed.
 
-		String newText;
-		if (cursorPosition >= text.length()) {
-			newText = text + character;
-		} else {
-			newText = text.substring(0, cursorPosition) + character + text.substring(cursorPosition);
+		this.selection.cancel();
+		this.carets.clear();
+		var edits = new ArrayList<UndoHistory.Edit>(count);
+		for (int i = count - 1; i >= 0; i--) {
+			if (starts[i] == ends[i] && text.isEmpty())
+				continue;
+			edits.add(new UndoHistory.Edit(starts[i], this.lines.substring(starts[i], ends[i]), text));
+			this.lines.replace(starts[i], ends[i], text);
+		}
+		this.history.recordAll(edits);
+
+		// Each cursor ends after its replacement, shifted by the replacements before it.
+		var positions = new int[count];
+		int shift = 0;
+		for (int i = 0; i < count; i++) {
+			positions[i] = starts[i] + shift + text.length();
+			shift += text.length() - (ends[i] - starts[i]);
 		}
 
-		this.lines.clear();
-		this.lines.add(newText);
+		int mainPosition = positions[all.indexOf(main)];
+		this.cursor.setPosition(mainPosition);
+		for (int i = 0; i < positions.length; i++) {
+			if (positions[i] != mainPosition && (i == 0 || positions[i] != positions[i - 1]))
+				this.carets.add(new Caret(positions[i], positions[i]));
+		}
+	}
 
-		if (character == '\n') {
-			this.cursor.moveRight();
-			//this.cursor.moveRight();
-		} else {
-			this.cursor.moveRight();
-			if (oldSize + 1 == this.lines.size())
-				this.cursor.moveRight(); // Extra move right.
+	/**
+	 * Returns the number of cursors of this text area, including the main cursor.
+	 *
+	 * @return the number of cursors
+	 */
+	public int getCursorCount() {
+		return this.carets.size() + 1;
+	}
+
+	/**
+	 * Adds a cursor at the given offset, edits then apply at every cursor.
+	 *
+	 * @param position the offset of the cursor
+	 */
+	public void addCursor(int position) {
+		this.addCaret(new Caret(position, position));
+	}
+
+	/**
+	 * Removes the additional cursors, only the main cursor is kept.
+	 */
+	public void clearCursors() {
+		this.carets.clear();
+	}
+
+	private void addCaret(Caret caret) {
+		int length = this.lines.length();
+		caret = new Caret(MathHelper.clamp(caret.anchor(), 0, length), MathHelper.clamp(caret.position(), 0, length));
+		if (caret.position() != this.cursor.getPosition() && !this.carets.contains(caret))
+			this.carets.add(caret);
+	}
+
+	/**
+	 * Selects the next occurrence of the selected text, with the current selection kept as an additional cursor.
+	 *
+	 * @return {@code true} if an occurrence has been selected, else {@code false}
+	 */
+	public boolean addNextOccurrence() {
+		if (this.selection.isEmpty())
+			return false;
+
+		var text = this.lines.getBuffer();
+		var search = TextSearch.literal(this.selection.getSelectedText(), false);
+		var current = new Caret(this.selection.anchor.getPosition(), this.selection.follower.getPosition());
+		var match = search.findNext(text, current.end());
+		if (match == null)
+			match = search.findNext(text, 0);
+		if (match == null || match.start() == current.start())
+			return false;
+		for (var caret : this.carets) {
+			if (caret.start() == match.start())
+				return false; // Every occurrence is already selected.
+		}
+
+		this.carets.add(current);
+		this.selection.anchor.setPosition(match.start());
+		this.cursor.setPosition(match.end());
+		this.selection.follower.copy(this.cursor);
+		this.selection.active = true;
+		this.history.breakMerging();
+		return true;
+	}
+
+	/**
+	 * Returns the undo history of this text area.
+	 *
+	 * @return the undo history
+	 */
+	public UndoHistory getUndoHistory() {
+		return this.history;
+	}
+
+	/**
+	 * Reverts the last edit.
+	 *
+	 * @return {@code true} if an edit has been reverted, else {@code false}
+	 */
+	public boolean undo() {
+		if (this.loader != null || this.isInserting())
+			return false;
+
+		var edits = this.history.undo();
+		if (edits.isEmpty())
+			return false;
+		for (int i = edits.size() - 1; i >= 0; i--) {
+			var edit = edits.get(i);
+			this.applyHistoryEdit(edit.offset(), edit.offset() + edit.inserted().length(), edit.removed());
+		}
+		return true;
+	}
+
+	/**
+	 * Applies again the last reverted edit.
+	 *
+	 * @return {@code true} if an edit has been applied, else {@code false}
+	 */
+	public boolean redo() {
+		if (this.loader != null || this.isInserting())
+			return false;
+
+		var edits = this.history.redo();
+		if (edits.isEmpty())
+			return false;
+		for (var edit : edits) {
+			this.applyHistoryEdit(edit.offset(), edit.offset() + edit.removed().length(), edit.inserted());
 		}
+		return true;
+	}
+
+	private void applyHistoryEdit(int start, int end, String text) {
+		this.selection.cancel();
+		this.carets.clear();
+		this.lines.replace(start, end, text);
+		this.cursor.setPosition(start + text.length());
+	}
+
+	private void insertCharacter(char character) {
+		this.write(String.valueOf(character));
 	}
 
 	private void eraseCharacter() {
-		if (this.selection.erase()) {
-			this.sanitize();
+		if (!this.carets.isEmpty()) {
+			this.replaceAtCursors(1, 0, "");
 			return;
 		}
 
-		var line = this.lines.get(this.cursor.row);
-
-		if ((line.isEmpty() || line.equals("\n")) && this.lines.size() != 1) {
-			this.lines.remove(this.cursor.row);
-			this.cursor.moveUp();
-			this.cursor.toRowEnd();
+		if (this.selection.erase()) {
+			this.sanitize();
 			return;
 		}
 
-		if (this.cursor.column == 0 && this.cursor.row == 0)
+		int position = this.cursor.getPosition();
+		if (position == 0)
 			return;
 
-		var text = this.getText();
-		int cursorPosition = this.cursor.getPosition();
-		this.cursor.moveLeft();
-		this.lines.clear();
-		this.lines.add(text.substring(0, cursorPosition - 1) + text.substring(cursorPosition));
+		this.replace(position - 1, position, "");
 		this.sanitize();
 	}
 
 	private void removeCharacterForward() {
-		if (this.selection.erase()) {
-			this.sanitize();
+		if (!this.carets.isEmpty()) {
+			this.replaceAtCursors(0, 1, "");
 			return;
 		}
 
-		var line = this.lines.get(this.cursor.row);
-
-		if (line.isEmpty()) {
-			int row = this.cursor.row;
-			if (row >= this.lines.size() - 1)
-				return;
-			this.lines.remove(row);
+		if (this.selection.erase()) {
 			this.sanitize();
 			return;
 		}
 
-		if (this.cursor.column >= line.length() && this.cursor.row == this.lines.size() - 1)
+		int position = this.cursor.getPosition();
+		if (position >= this.lines.length())
 			return;
 
-		var text = this.getText();
-		int cursorPosition = this.cursor.getPosition();
-
-		var newText = text.substring(0, cursorPosition) + text.substring(cursorPosition + 1);
-		this.lines.clear();
-		this.lines.add(newText);
+		this.replace(position, position + 1, "");
 		this.sanitize();
 	}
 
 	/**
-	 * Writes text where the cursor is.
+	 * Writes text where the cursor is, replacing the selected text if any.
+	 * <p>
+	 * Large texts are inserted over the next frames, which can be cancelled with the escape key.
+	 * Nothing is written while a file is being loaded or a large text is being inserted.
 	 *
 	 * @param text the text to write
 	 */
 	public void write(String text) {
-		if (text.isEmpty())
+		if (text.isEmpty() || this.loader != null || this.isInserting())
 			return;
 
-		if (this.lines.isEmpty()) {
-			this.lines.add(text);
-			this.cursor.toEnd();
+		if (!this.carets.isEmpty()) {
+			this.replaceAtCursors(0, 0, text);
 			return;
 		}
-		this.selection.erase();
 
-		int oldSize = this.lines.size();
+		int start;
+		int end;
+		if (this.selection.isEmpty()) {
+			start = end = this.cursor.getPosition();
+		} else {
+			start = this.selection.getStart().getPosition();
+			end = this.selection.getEnd().getPosition();
+		}
+		this.selection.cancel();
+
+		if (text.length() > CHUNKED_INSERT_THRESHOLD) {
+			var removed = this.lines.substring(start, end);
+			this.lines.replace(start, end, "");
+			this.cursor.setPosition(start);
+			this.history.breakMerging();
+			this.startInsert(start, removed, text);
+			return;
+		}
 
-		var whole = this.getText();
-		int position = this.cursor.getPosition();
+		this.replace(start, end, text);
+	}
 
-		String newText;
-		if (position >= whole.length()) {
-			newText = whole + text;
+	@Override
+	protected boolean insertChunk(int offset, String chunk) {
+		this.lines.replace(offset, offset, chunk);
+		this.cursor.setPosition(offset + chunk.length());
+		return true;
+	}
+
+	@Override
+	protected void endInsert(int start, String removed, String inserted, boolean cancelled) {
+		if (cancelled) {
+			this.lines.replace(start, start + inserted.length(), removed);
+			this.cursor.setPosition(start + removed.length());
 		} else {
-			newText = whole.substring(0, position) + text + whole.substring(position);
+			// The whole insertion is a single undo step.
+			this.history.record(start, removed, inserted);
+			this.history.breakMerging();
 		}
+	}
 
-		this.lines.clear();
-		this.lines.setLines(Arrays.asList(newText.split("\n")));
+	/* Search */
 
-		for (int i = 0; i < text.length(); i++) {
-			if (text.charAt(i) == '\n')
-				this.cursor.moveRight();
-			this.cursor.moveRight();
-		}
-		if (oldSize < this.lines.size()) this.cursor.moveRight();
+	/**
+	 * Returns the search of this text area.
+	 *
+	 * @return the search, or {@code null} if nothing is searched
+	 */
+	public @Nullable TextSearch getSearch() {
+		return this.search;
 	}
 
-	protected boolean doesLineOccupyFullSpace(String cursorLine) {
-		return this.textRenderer.getWidth(cursorLine) >= this.getInnerWidth();
+	/**
+	 * Sets the search of this text area.
+	 * <p>
+	 * All the matches are searched in the background, and searched again once the text changes.
+	 * The matches on the displayed rows are highlighted.
+	 *
+	 * @param search the search, or {@code null} to stop searching
+	 */
+	public void setSearch(@Nullable TextSearch search) {
+		if (this.searchTask != null)
+			this.searchTask.cancel(false);
+		this.search = search;
+		this.searchMatches = null;
+		this.searchTask = null;
+		this.searchedText = null;
+	}
+
+	/**
+	 * Returns the matches of the search in the current text.
+	 *
+	 * @return the matches, or {@code null} if they are not known yet
+	 */
+	public @Nullable TextSearch.Matches getSearchMatches() {
+		var matches = this.searchMatches;
+		return matches != null && matches.getText() == this.lines.getBuffer() ? matches : null;
+	}
+
+	/**
+	 * Selects the next match of the search after the cursor, wrapping around to the start of the text.
+	 *
+	 * @return {@code true} if a match has been selected, else {@code false}
+	 */
+	public boolean findNext() {
+		if (this.search == null)
+			return false;
+
+		var text = this.lines.getBuffer();
+		int from = this.selection.isEmpty() ? this.cursor.getPosition() : this.selection.getEnd().getPosition();
+		var match = this.search.findNext(text, from);
+		if (match == null && from > 0)
+			match = this.search.findNext(text, 0);
+		if (match == null)
+			return false;
+
+		this.carets.clear();
+		this.selection.anchor.setPosition(match.start());
+		this.cursor.setPosition(match.end());
+		this.selection.follower.copy(this.cursor);
+		this.selection.active = true;
+		this.history.breakMerging();
+		return true;
+	}
+
+	/**
+	 * Replaces all the matches of the search, as a single edit.
+	 *
+	 * @param replacement the replacement of each match
+	 * @return the number of replaced matches
+	 * @see TextSearch#replaceAll(TextRope, String)
+	 */
+	public int replaceAll(String replacement) {
+		if (this.search == null || !this.isEditable())
+			return 0;
+
+		var edit = this.search.replaceAll(this.lines.getBuffer(), replacement);
+		if (edit == null)
+			return 0;
+
+		this.selection.cancel();
+		this.history.breakMerging();
+		this.replace(edit.start(), edit.end(), edit.text());
+		this.history.breakMerging();
+		return edit.count();
+	}
+
+	/**
+	 * Publishes the matches of the completed search, and searches again if the text changed since.
+	 */
+	private void updateSearch() {
+		if (this.search == null)
+			return;
+
+		var task = this.searchTask;
+		if (task != null && task.isDone()) {
+			this.searchMatches = task.isCompletedExceptionally() ? null : task.join();
+			this.searchTask = task = null;
+		}
+
+		var text = this.lines.getBuffer();
+		if (text == this.searchedText)
+			return;
+
+		if (task != null)
+			task.cancel(false);
+		this.searchedText = text;
+		this.searchTask = this.search.findAllAsync(text, Util.getMainWorkerExecutor());
 	}
 
 	@Override
 	protected void sanitize() {
-		if (this.lines.isEmpty())
-			this.lines.add("");
 		this.cursor.sanitize();
 	}
 
@@ -332,11 +950,19 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 		if (!this.isEditorActive())
 			return false;
 
+		if (this.isInserting()) {
+			if (keyCode == GLFW.GLFW_KEY_ESCAPE)
+				this.cancelInsert();
+			return true;
+		}
+
 		if (Screen.isSelectAll(keyCode)) {
+			this.carets.clear();
 			this.selection.selectAll();
 			return true;
 		} else if (Screen.isPaste(keyCode)) {
-			this.write(MinecraftClient.getInstance().keyboard.getClipboard());
+			if (this.isEditable())
+				this.write(MinecraftClient.getInstance().keyboard.getClipboard());
 			return true;
 		} else if (Screen.isCopy(keyCode) || Screen.isCut(keyCode)) {
 			var selected = this.selection.getSelectedText();
@@ -347,6 +973,13 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 				this.sanitize();
 			}
 			return true;
+		} else if (Screen.hasControlDown() && !Screen.hasAltDown()
+				&& (keyCode == GLFW.GLFW_KEY_Z || keyCode == GLFW.GLFW_KEY_Y)) {
+			if (this.isEditable()) {
+				if (keyCode == GLFW.GLFW_KEY_Y || Screen.hasShiftDown()) this.redo();
+				else this.undo();
+			}
+			return true;
 		}
 
 		switch (keyCode) {
@@ -380,9 +1013,11 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 					this.removeCharacterForward();
 				return true;
 			case GLFW.GLFW_KEY_D:
-				if (Screen.hasControlDown() && this.isEditable() && !this.lines.isEmpty()) {
-					this.lines.remove(this.cursor.row);
-					this.sanitize();
+				if (Screen.hasControlDown()) {
+					if (!this.selection.isEmpty())
+						this.addNextOccurrence();
+					else if (this.isEditable() && !this.lines.isEmpty())
+						this.removeRow(this.cursor.row);
 				}
 				return true;
 			default:
@@ -390,7 +1025,29 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 		}
 	}
 
+	/**
+	 * Removes the given row, the cursor stays on the same row index.
+	 *
+	 * @param row the row to remove
+	 */
+	private void removeRow(int row) {
+		int start = this.lines.getRowStart(row);
+		int end = this.lines.getRowStart(row + 1);
+		if (row == this.lines.size() - 1 && row > 0 && this.lines.get(row - 1).endsWith("\n")) {
+			// The last line is removed, its preceding separator goes with it.
+			start--;
+		}
+
+		int column = this.cursor.column;
+		this.replace(start, end, "");
+		this.cursor.row = row;
+		this.cursor.lastColumn = this.cursor.column = column;
+		this.sanitize();
+	}
+
 	private boolean onSelectionUpdate(Runnable action) {
+		this.history.breakMerging();
+		this.carets.clear();
 		this.selection.tryStartSelection();
 		action.run();
 		this.selection.moveToCursor();
@@ -405,21 +1062,29 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 
 			this.setFocused(true);
 
+			// Alt+click adds a cursor, the previous cursors are kept.
+			var carets = Screen.hasAltDown() ? new ArrayList<>(this.carets) : null;
+			var previous = new Caret(this.selection.isEmpty() ? this.cursor.getPosition() : this.selection.anchor.getPosition(),
+					this.cursor.getPosition());
+
 			int row = this.firstLine + y / 9;
 			if (row >= this.lines.size()) {
 				this.cursor.toEnd();
-				return true;
 			} else if (row < 0) {
 				this.cursor.toStart();
-				return true;
-			}
-
-			this.onSelectionUpdate(() -> {
-				this.cursor.row = row;
+			} else {
+				this.onSelectionUpdate(() -> {
+					this.cursor.row = row;
 
-				this.cursor.lastColumn = this.cursor.column = this.textRenderer.trimToWidth(this.lines.get(row), x).length();
-			});
+					this.cursor.lastColumn = this.cursor.column = this.lines.getColumnAt(row, x + this.horizontalScroll);
+				});
+			}
 
+			this.carets.clear();
+			if (carets != null) {
+				carets.add(previous);
+				carets.forEach(this::addCaret);
+			}
 			return true;
 		}
 
@@ -432,6 +1097,12 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 			return false;
 		}
 
+		if (!this.lines.isWrapping() && (scrollX != 0. || Screen.hasShiftDown())) {
+			double amount = scrollX != 0. ? scrollX : scrollY;
+			this.scrollHorizontally(amount > 0. ? -HORIZONTAL_SCROLL_STEP : HORIZONTAL_SCROLL_STEP);
+			return true;
+		}
+
 		if (scrollY > 0.) {
 			this.cursor.moveUp();
 		} else {
@@ -440,14 +1111,115 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 		return true;
 	}
 
+	/**
+	 * Scrolls the unwrapped lines horizontally, up to the end of the longest displayed row.
+	 *
+	 * @param amount the amount to scroll by, in pixels
+	 */
+	private void scrollHorizontally(int amount) {
+		if (amount > 0) {
+			int right = this.horizontalScroll + this.getInnerWidth();
+			int endRow = Math.min(this.lines.size(), this.firstLine + this.displayedLines);
+			int overflow = 0;
+			for (int row = this.firstLine; row < endRow; row++) {
+				// Rows are only measured up to the first column past the right edge.
+				int column = this.lines.getColumnAt(row, right) + 1;
+				overflow = Math.max(overflow, this.lines.getColumnX(row, column) - right);
+			}
+			amount = Math.min(amount, overflow);
+		}
+		this.horizontalScroll = Math.max(0, this.horizontalScroll + amount);
+	}
+
+	/**
+	 * Scrolls the unwrapped lines horizontally to keep the cursor displayed, if it moved since the last frame.
+	 */
+	private void followCursor() {
+		if (this.lines.isWrapping()) {
+			this.horizontalScroll = 0;
+			return;
+		}
+
+		int position = this.cursor.getPosition();
+		if (position == this.followedPosition)
+			return;
+		this.followedPosition = position;
+
+		int x = this.lines.getColumnX(this.cursor.row, this.cursor.column);
+		int width = this.getInnerWidth();
+		if (x < this.horizontalScroll)
+			this.horizontalScroll = Math.max(0, x - width / 4);
+		else if (x > this.horizontalScroll + width - 2)
+			this.horizontalScroll = x - width + width / 4;
+	}
+
+	/**
+	 * Returns the X-coordinate on screen of the given column.
+	 * <p>
+	 * The columns of unwrapped rows past the right edge of the text area are placed right after it, so they are not measured.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the X-coordinate
+	 */
+	private int getColumnScreenX(int row, int column) {
+		if (!this.lines.isWrapping())
+			column = Math.min(column, this.lines.getColumnAt(row, this.horizontalScroll + this.getInnerWidth()) + 1);
+		return this.getX() + 4 - this.horizontalScroll + this.lines.getColumnX(row, column);
+	}
+
 	/* Rendering */
 
 	@Override
 	protected void renderWidget(DrawContext drawContext, int mouseX, int mouseY, float delta) {
 		super.renderWidget(drawContext, mouseX, mouseY, delta);
 
+		this.continueLoading(LOAD_BUDGET_NANOS);
+		this.updateLayout();
+		this.updateSearch();
+		if (this.highlighting != null)
+			this.highlighting.update(this.lines.getBuffer());
+		if (this.diagnostics != null)
+			this.diagnostics.update(this.lines.getBuffer());
+		this.followCursor();
+
+		boolean clip = !this.lines.isWrapping();
+		if (clip) {
+			int thickness = this.getBorder().getThickness();
+			ScissorManager.push(this.getX() + thickness, this.getY() + thickness,
+					this.getWidth() - thickness * 2, this.getHeight() - thickness * 2);
+		}
 		this.drawText(drawContext);
 		this.drawCursor(drawContext);
+		if (clip)
+			ScissorManager.pop();
+
+		if (this.isMouseHovered())
+			this.queueDiagnosticTooltip(mouseX, mouseY);
+	}
+
+	/**
+	 * Rewraps the lines which are still wrapped with an outdated width, the displayed ones first,
+	 * then as many of the others as the frame budget allows.
+	 * <p>
+	 * The rows of the first displayed line, the cursor and the selection are restored from their positions in the text.
+	 */
+	private void updateLayout() {
+		if (this.lines.isFullyWrapped())
+			return;
+
+		int firstLineStart = this.lines.getRowStart(this.firstLine);
+		int position = this.cursor.getPosition();
+		int anchor = this.selection.anchor.getPosition();
+		int follower = this.selection.follower.getPosition();
+
+		this.lines.wrapRows(this.firstLine, this.displayedLines);
+		this.lines.wrapPending(WRAP_BUDGET_NANOS);
+
+		this.firstLine = this.lines.getRowAt(firstLineStart);
+		this.selection.anchor.setPosition(anchor);
+		this.selection.follower.setPosition(follower);
+		this.cursor.setPosition(position);
 	}
 
 	/**
@@ -456,74 +1228,301 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 	 * @param drawContext the GUI graphics instance to render with
 	 */
 	protected void drawText(DrawContext drawContext) {
-		int length = Math.min(this.lines.size(), this.displayedLines);
+		int endRow = Math.min(this.lines.size(), this.firstLine + this.displayedLines);
 
 		int textColor = this.getTextColor();
 		int textX = this.getX() + 4;
 
+		this.drawSearchMatches(drawContext);
+
 		int lineY = this.getY() + 4;
-		for (int row = this.firstLine; row < this.firstLine + length; row++) {
-			var line = this.lines.get(row);
-			if (line == null)
+		for (int row = this.firstLine; row < endRow; row++) {
+			OrderedText text;
+			int x = textX;
+			if (this.lines.isWrapping()) {
+				text = this.highlighting == null ? this.lines.getRowText(row)
+						: this.highlighting.getRowText(this.lines, row, row - this.firstLine, this.displayedLines);
+			} else {
+				// Only the columns intersecting the text area are measured and drawn.
+				int startColumn = this.lines.getColumnAt(row, this.horizontalScroll);
+				int endColumn = Math.min(this.lines.getRowLength(row),
+						this.lines.getColumnAt(row, this.horizontalScroll + this.getInnerWidth()) + 1);
+				x += this.lines.getColumnX(row, startColumn) - this.horizontalScroll;
+				if (this.highlighting == null) {
+					text = this.getRowSliceText(row, row - this.firstLine, startColumn, endColumn);
+				} else {
+					text = this.highlighting.getRowSliceText(this.lines, row, startColumn, endColumn,
+							row - this.firstLine, this.displayedLines);
+				}
+			}
+			drawContext.drawTextWithShadow(this.textRenderer, text, x, lineY, textColor);
+			lineY += this.textRenderer.fontHeight;
+		}
+
+		this.drawDiagnostics(drawContext);
+		this.drawSelection(drawContext);
+	}
+
+	/**
+	 * Returns the text to render of the given columns of the given unwrapped row.
+	 * <p>
+	 * The text is cached by row on screen, and only rebuilt once the text or the displayed columns change.
+	 *
+	 * @param row the row
+	 * @param slot the index of the row on screen
+	 * @param startColumn the first column, inclusive
+	 * @param endColumn the last column, exclusive
+	 * @return the text to render
+	 */
+	private OrderedText getRowSliceText(int row, int slot, int startColumn, int endColumn) {
+		if (this.rowSlices.length != this.displayedLines)
+			this.rowSlices = new RowSlice[this.displayedLines];
+
+		var buffer = this.lines.getBuffer();
+		int rowStart = this.lines.getRowStart(row);
+		int start = rowStart + startColumn;
+		int end = rowStart + endColumn;
+		var slice = this.rowSlices[slot];
+		if (slice == null || slice.text() != buffer || slice.start() != start || slice.end() != end) {
+			slice = new RowSlice(buffer, start, end,
+					OrderedText.styledForwardsVisitedString(this.lines.substring(start, end), Style.EMPTY));
+			this.rowSlices[slot] = slice;
+		}
+		return slice.rendered();
+	}
+
+	/**
+	 * Draws the highlights of the search matches on the displayed rows, in a single draw call.
+	 *
+	 * @param drawContext the GUI graphics instance to render with
+	 */
+	protected void drawSearchMatches(DrawContext drawContext) {
+		var matches = this.getSearchMatches();
+		if (matches == null)
+			return;
+
+		int endRow = Math.min(this.lines.size(), this.firstLine + this.displayedLines);
+		int visibleStart = this.lines.getRowStart(this.firstLine);
+		int visibleEnd = this.lines.getRowStart(endRow);
+
+		BufferBuilder buffer = null;
+		for (int i = matches.indexAfter(visibleStart); i < matches.size() && matches.getStart(i) < visibleEnd; i++) {
+			int start = Math.max(matches.getStart(i), visibleStart);
+			int end = Math.min(matches.getEnd(i), visibleEnd);
+
+			for (int row = this.lines.getRowAt(start); row < endRow; row++) {
+				int rowStart = this.lines.getRowStart(row);
+				if (rowStart >= end)
+					break;
+
+				int x = this.getColumnScreenX(row, Math.max(start - rowStart, 0));
+				int x2 = this.getColumnScreenX(row, end - rowStart);
+				if (x2 <= x)
+					continue;
+
+				int lineY = this.getY() + 4 + (row - this.firstLine) * this.textRenderer.fontHeight;
+				int y2 = lineY + this.textRenderer.fontHeight;
+
+				if (buffer == null)
+					buffer = Tessellator.getInstance().begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_COLOR);
+				buffer.vertex(x, y2, 0).color(SEARCH_MATCH_COLOR);
+				buffer.vertex(x2, y2, 0).color(SEARCH_MATCH_COLOR);
+				buffer.vertex(x2, lineY, 0).color(SEARCH_MATCH_COLOR);
+				buffer.vertex(x, lineY, 0).color(SEARCH_MATCH_COLOR);
+			}
+		}
+
+		if (buffer == null)
+			return;
+
+		RenderSystem.enableBlend();
+		RenderSystem.defaultBlendFunc();
+		RenderSystem.setShader(GameRenderer::getPositionColorProgram);
+		BufferRenderer.drawWithGlobalProgram(buffer.end());
+		RenderSystem.disableBlend();
+	}
+
+	/**
+	 * Draws the underlines of the diagnostics on the displayed rows, in a single draw call.
+	 *
+	 * @param drawContext the GUI graphics instance to render with
+	 */
+	protected void drawDiagnostics(DrawContext drawContext) {
+		if (this.diagnostics == null)
+			return;
+
+		int endRow = Math.min(this.lines.size(), this.firstLine + this.displayedLines);
+		int visibleStart = this.lines.getRowStart(this.firstLine);
+		int visibleEnd = this.lines.getRowStart(endRow);
+		int length = this.lines.length();
+
+		BufferBuilder buffer = null;
+		var markers = this.diagnostics.getMarkers();
+		for (int i = this.diagnostics.findFirstEndingAt(visibleStart); i < markers.size(); i++) {
+			var marker = markers.get(i);
+			if (marker.start() >= visibleEnd)
+				break;
+			int start = Math.min(Math.max(marker.start(), visibleStart), length);
+			int end = Math.min(Math.max(marker.end(), start), length);
+			if (marker.end() < visibleStart)
 				continue;
-			if (line.endsWith("\n")) line = line.substring(0, line.length() - 1);
 
-			drawContext.drawTextWithShadow(this.textRenderer, Text.literal(line), textX, lineY, textColor);
-			this.drawSelection(drawContext, line, lineY, row);
+			int color = marker.diagnostic().severity().getColor();
+			for (int row = this.lines.getRowAt(start); row < endRow; row++) {
+				int rowStart = this.lines.getRowStart(row);
+				if (rowStart > end || (rowStart == end && end > start))
+					break;
 
-			lineY += this.textRenderer.fontHeight;
+				int x = this.getColumnScreenX(row, Math.max(start - rowStart, 0));
+				// Diagnostics at the end of a line are still visible.
+				int x2 = Math.max(this.getColumnScreenX(row, end - rowStart), x + 3);
+
+				int y = this.getY() + 4 + (row - this.firstLine + 1) * this.textRenderer.fontHeight - 1;
+
+				if (buffer == null)
+					buffer = Tessellator.getInstance().begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_COLOR);
+				buffer.vertex(x, y + 1, 0).color(color);
+				buffer.vertex(x2, y + 1, 0).color(color);
+				buffer.vertex(x2, y, 0).color(color);
+				buffer.vertex(x, y, 0).color(color);
+			}
+		}
+
+		if (buffer == null)
+			return;
+
+		RenderSystem.setShader(GameRenderer::getPositionColorProgram);
+		BufferRenderer.drawWithGlobalProgram(buffer.end());
+	}
+
+	/**
+	 * Queues the tooltip of the diagnostic under the mouse, if any.
+	 *
+	 * @param mouseX the X coordinate of the mouse
+	 * @param mouseY the Y coordinate of the mouse
+	 */
+	private void queueDiagnosticTooltip(int mouseX, int mouseY) {
+		if (this.diagnostics == null || this.diagnostics.getMarkers().isEmpty())
+			return;
+
+		int y = mouseY - this.getY() - 4;
+		if (y < 0)
+			return;
+		int row = this.firstLine + y / this.textRenderer.fontHeight;
+		if (row >= Math.min(this.lines.size(), this.firstLine + this.displayedLines))
+			return;
+
+		int x = mouseX - this.getX() - 4 + this.horizontalScroll;
+		int position = this.lines.getRowStart(row) + this.lines.getColumnAt(row, x);
+		var markers = this.diagnostics.getMarkers();
+		int end = this.diagnostics.findFirstStartingAfter(position);
+		for (int i = this.diagnostics.findFirstEndingAt(position); i < end; i++) {
+			var marker = markers.get(i);
+			if (position < marker.end() || position == marker.start()) {
+				Tooltip.create(mouseX, mouseY, marker.diagnostic().message(), this.getWidth()).queue();
+				return;
+			}
 		}
 	}
 
 	/**
-	 * Draws the selection over the text.
+	 * Draws the selection over the given row.
 	 *
 	 * @param drawContext the GUI graphics instance to render with
 	 * @param line the current line
 	 * @param lineY the line Y-coordinates
 	 * @param row the row number
+	 * @deprecated the selection of all displayed rows is drawn in a single call,
+	 * use {@link #drawSelection(DrawContext)} instead
 	 */
+	@Deprecated(since = "5.1.0", forRemoval = true)
 	protected void drawSelection(DrawContext drawContext, String line, int lineY, int row) {
-		if (!this.isFocused())
+		if (!this.isFocused() || !this.selection.active || !this.selection.isRowSelected(row))
 			return;
-		if (!this.selection.isRowSelected(row))
-			return;
-
-		int startIndex;
-		if (selection.getStart().row != row) startIndex = 0;
-		else startIndex = selection.getStart().column;
 
-		int endIndex;
-		if (selection.getEnd().row != row) endIndex = line.length();
-		else endIndex = selection.getEnd().column;
+		var start = this.selection.getStart();
+		var end = this.selection.getEnd();
+		var buffer = this.bufferSelection(null, row,
+				start.row == row ? start.column : 0,
+				row, end.row == row ? end.column : this.lines.getRowLength(row));
+		if (buffer == null)
+			return;
 
-		if (endIndex >= line.length())
-			endIndex = line.length();
+		RenderSystem.enableColorLogicOp();
+		RenderSystem.logicOp(GlStateManager.LogicOp.OR_REVERSE);
+		RenderSystem.setShader(GameRenderer::getPositionProgram);
+		RenderSystem.setShaderColor(0.0f, 0.0f, 1.0f, 1.0f);
+		BufferRenderer.drawWithGlobalProgram(buffer.end());
+		RenderSystem.setShaderColor(1.0f, 1.0f, 1.0f, 1.0f);
+		RenderSystem.disableColorLogicOp();
+	}
 
-		if (startIndex >= line.length() || startIndex == endIndex)
+	/**
+	 * Draws the selection over the displayed rows, in a single draw call.
+	 *
+	 * @param drawContext the GUI graphics instance to render with
+	 */
+	protected void drawSelection(DrawContext drawContext) {
+		if (!this.isFocused())
 			return;
 
-		int x = this.getX() + 4 + this.textRenderer.getWidth(line.substring(0, startIndex));
-		var selected = line.substring(startIndex, endIndex);
+		BufferBuilder buffer = null;
+		if (this.selection.active) {
+			var start = this.selection.getStart();
+			var end = this.selection.getEnd();
+			buffer = this.bufferSelection(buffer, start.row, start.column, end.row, end.column);
+		}
+		for (var caret : this.carets) {
+			if (caret.anchor() == caret.position())
+				continue;
 
-		int x2 = x + this.textRenderer.getWidth(selected);
-		int y2 = lineY + this.textRenderer.fontHeight;
+			int startRow = this.lines.getRowAt(caret.start());
+			int endRow = this.lines.getRowAt(caret.end());
+			buffer = this.bufferSelection(buffer, startRow, caret.start() - this.lines.getRowStart(startRow),
+					endRow, caret.end() - this.lines.getRowStart(endRow));
+		}
+
+		if (buffer == null)
+			return;
 
-		var tessellator = Tessellator.getInstance();
-		var buffer = tessellator.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION);
 		RenderSystem.enableColorLogicOp();
 		RenderSystem.logicOp(GlStateManager.LogicOp.OR_REVERSE);
 		RenderSystem.setShader(GameRenderer::getPositionProgram);
 		RenderSystem.setShaderColor(0.0f, 0.0f, 1.0f, 1.0f);
-		buffer.vertex(x, y2, 0);
-		buffer.vertex(x2, y2, 0);
-		buffer.vertex(x2, lineY, 0);
-		buffer.vertex(x, lineY, 0);
 		BufferRenderer.drawWithGlobalProgram(buffer.end());
 		RenderSystem.setShaderColor(1.0f, 1.0f, 1.0f, 1.0f);
 		RenderSystem.disableColorLogicOp();
 	}
 
+	/**
+	 * Adds the quads of the displayed rows of a selection to the given buffer.
+	 *
+	 * @return the buffer, which is created if needed
+	 */
+	private @Nullable BufferBuilder bufferSelection(@Nullable BufferBuilder buffer, int startRow, int startColumn, int endRow, int endColumn) {
+		int firstRow = Math.max(startRow, this.firstLine);
+		int lastRow = Math.min(endRow, Math.min(this.lines.size(), this.firstLine + this.displayedLines) - 1);
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			int x = this.getColumnScreenX(row, row == startRow ? startColumn : 0);
+			int x2 = this.getColumnScreenX(row, row == endRow ? endColumn : Integer.MAX_VALUE);
+			if (x2 <= x)
+				continue;
+
+			int lineY = this.getY() + 4 + (row - this.firstLine) * this.textRenderer.fontHeight;
+			int y2 = lineY + this.textRenderer.fontHeight;
+
+			if (buffer == null)
+				buffer = Tessellator.getInstance().begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION);
+			buffer.vertex(x, y2, 0);
+			buffer.vertex(x2, y2, 0);
+			buffer.vertex(x2, lineY, 0);
+			buffer.vertex(x, lineY, 0);
+		}
+		return buffer;
+	}
+
+
 	/**
 	 * Draws the cursor.
 	 *
@@ -532,24 +1531,93 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 	protected void drawCursor(DrawContext drawContext) {
 		if (!this.isFocused())
 			return;
-		if (this.lines.isEmpty()) {
-			drawContext.drawTextWithShadow(this.textRenderer, Text.literal("_"), this.getX(), this.getY() + 4, ColorUtil.TEXT_COLOR);
-			return;
+		this.cursor.sanitize();
+		this.drawCursor(drawContext, this.cursor.row, this.cursor.column);
+
+		int endRow = Math.min(this.lines.size(), this.firstLine + this.displayedLines);
+		for (var caret : this.carets) {
+			int row = this.lines.getRowAt(caret.position());
+			if (row >= this.firstLine && row < endRow)
+				this.drawCursor(drawContext, row, caret.position() - this.lines.getRowStart(row));
 		}
+	}
 
-		this.cursor.sanitize();
+	/**
+	 * Returns whether the given row occupies the whole width of the text area.
+	 *
+	 * @param row the row
+	 * @return {@code true} if the row occupies the whole width, else {@code false}
+	 */
+	protected boolean doesRowOccupyFullSpace(int row) {
+		return this.lines.getRowWidth(row) >= this.getInnerWidth();
+	}
+
+	/**
+	 * Returns whether the given line occupies the whole width of the text area.
+	 *
+	 * @param cursorLine the line
+	 * @return {@code true} if the line occupies the whole width, else {@code false}
+	 * @deprecated the row widths are cached by the text, use {@link #doesRowOccupyFullSpace(int)} instead
+	 */
+	@Deprecated(since = "5.1.0", forRemoval = true)
+	protected boolean doesLineOccupyFullSpace(String cursorLine) {
+		return this.textRenderer.getWidth(cursorLine) >= this.getInnerWidth();
+	}
 
-		int actualRow = this.cursor.row - firstLine;
-		String cursorLine = this.lines.get(this.cursor.row);
-		int cursorX = this.getX() + 4 + this.textRenderer.getWidth(cursorLine.substring(0, this.cursor.column));
+	private void drawCursor(DrawContext drawContext, int row, int column) {
+		int actualRow = row - firstLine;
+		int cursorX = this.getX() + 4 - this.horizontalScroll + this.lines.getColumnX(row, column);
 		int cursorY = this.getY() + 4 + actualRow * this.textRenderer.fontHeight;
 
-		if (this.cursor.row < this.lines.size() - 1 || this.cursor.column < cursorLine.length() || this.doesLineOccupyFullSpace(cursorLine))
+		if (row < this.lines.size() - 1 || column < this.lines.getRowLength(row) || this.doesRowOccupyFullSpace(row))
 			drawContext.fill(cursorX - 1, cursorY - 1, cursorX, cursorY + 9, ColorUtil.TEXT_COLOR);
 		else
 			drawContext.drawTextWithShadow(this.textRenderer, "_", cursorX, cursorY, ColorUtil.TEXT_COLOR);
 	}
 
+	/**
+	 * Represents the displayed slice of an unwrapped row.
+	 *
+	 * @param text the text the slice has been taken from
+	 * @param start the start offset of the slice
+	 * @param end the end offset of the slice
+	 * @param rendered the text to render
+	 */
+	private record RowSlice(TextRope text, int start, int end, OrderedText rendered) {
+	}
+
+	/**
+	 * Represents an additional cursor, as offsets in the text.
+	 *
+	 * @param anchor the offset where the selection of the cursor starts
+	 * @param position the offset of the cursor
+	 */
+	private record Caret(int anchor, int position) {
+		int start() {
+			return Math.min(this.anchor, this.position);
+		}
+
+		int end() {
+			return Math.max(this.anchor, this.position);
+		}
+
+		/**
+		 * Returns this cursor moved by the replacement of the given range of the text.
+		 */
+		Caret shift(int start, int end, int length) {
+			return new Caret(shift(this.anchor, start, end, length), shift(this.position, start, end, length));
+		}
+
+		private static int shift(int offset, int start, int end, int length) {
+			if (offset <= start)
+				return offset;
+			else if (offset >= end)
+				return offset + length - (end - start);
+			else
+				return start + length;
+		}
+	}
+
 	/**
 	 * Represents a cursor.
 	 *
@@ -676,10 +1744,9 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 			if (this.row < 0)
 				this.resetRow();
 
-			String line = lines.get(this.row);
-			if (line.endsWith("\n")) line = line.substring(0, line.length() - 1);
-			if (this.column > line.length())
-				this.column = line.length();
+			int length = lines.getRowLength(this.row);
+			if (this.column > length)
+				this.column = length;
 
 			this.adjustFirstLine();
 		}
@@ -700,10 +1767,21 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 		 * @return the position
 		 */
 		public int getPosition() {
-			int position = 0;
-			for (int i = 0; i < this.row; i++) position += lines.get(i).length();
-			for (int i = 0; i < this.column; i++) position += 1;
-			return position;
+			return lines.getRowStart(this.row) + this.column;
+		}
+
+		/**
+		 * Moves the cursor to the given position in the text.
+		 * <p>
+		 * A position at the boundary of two wrapped rows is placed at the start of the second row.
+		 *
+		 * @param position the position
+		 */
+		public void setPosition(int position) {
+			position = MathHelper.clamp(position, 0, lines.length());
+			this.row = lines.getRowAt(position);
+			this.lastColumn = this.column = position - lines.getRowStart(this.row);
+			this.sanitize();
 		}
 
 		private void adjustFirstLine() {
@@ -811,33 +1889,7 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 				return false;
 			}
 
-			if (start.row == 0 && start.column == 0 && end.row == lines.size() - 1 && end.column >= lines.get(lines.size() - 1).length()) {
-				lines.clear();
-				lines.add("");
-				this.cancel();
-				return true;
-			}
-
-			if (start.row == end.row) {
-				String line = lines.get(start.row);
-
-				if (start.column == 0 && end.column >= line.length())
-					lines.remove(start.row);
-				else
-					lines.replaceRow(start.row, line.substring(0, start.column) + line.substring(end.column));
-
-				cursor.copy(start);
-				this.cancel();
-				return true;
-			}
-
-			String text = getText();
-			var newText = text.substring(0, start.getPosition()) + text.substring(end.getPosition());
-
-			lines.clear();
-			lines.add(newText);
-
-			cursor.copy(start);
+			replace(start.getPosition(), end.getPosition(), "");
 
 			this.cancel();
 			return true;
@@ -858,10 +1910,16 @@ public class SpruceTextAreaWidget extends AbstractSpruceTextInputWidget {
 			if (start.isSame(end))
 				return "";
 
-			if (start.row == end.row)
-				return lines.get(start.row).substring(start.column, end.column);
+			return lines.substring(start.getPosition(), end.getPosition());
+		}
 
-			return getText().substring(start.getPosition(), end.getPosition());
+		/**
+		 * Returns whether no text is selected.
+		 *
+		 * @return {@code true} if no text is selected, else {@code false}
+		 */
+		public boolean isEmpty() {
+			return !this.active || this.anchor.isSame(this.follower);
 		}
 
 		public Cursor getStart() {
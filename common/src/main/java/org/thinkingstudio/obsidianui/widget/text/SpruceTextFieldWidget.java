@@ -31,6 +31,7 @@ import org.thinkingstudio.obsidianui.Tooltip;
 import org.thinkingstudio.obsidianui.Tooltipable;
 import org.thinkingstudio.obsidianui.navigation.NavigationDirection;
 import org.thinkingstudio.obsidianui.util.ColorUtil;
+import org.thinkingstudio.obsidianui.util.UndoHistory;
 
 import java.util.Objects;
 import java.util.Optional;
@@ -76,7 +77,16 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 
 	private final Cursor cursor = new Cursor(true);
 	private final Selection selection = new Selection();
+	private final UndoHistory history = new UndoHistory();
 	private String text = "";
+	/**
+	 * The text before the insertion point followed by the slices inserted so far, while a large text is being inserted.
+	 */
+	private @Nullable StringBuilder insertedText;
+	/**
+	 * The text after the insertion point, appended once the insertion ends.
+	 */
+	private String insertSuffix = "";
 	private Text tooltip;
 
 	private Consumer<String> changedListener;
@@ -84,6 +94,18 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 	private BiFunction<String, Integer, OrderedText> renderTextProvider;
 
 	private int firstCharacterIndex = 0;
+	/*
+	 * The displayed slice of the text, its rendered text and the cursor offset,
+	 * recomputed only when the text, the scroll, the width or the cursor changed.
+	 */
+	private @Nullable String displayedSource;
+	private int displayedFirstCharacter = -1;
+	private int displayedWidth = -1;
+	private @Nullable BiFunction<String, Integer, OrderedText> displayedProvider;
+	private String displayedText = "";
+	private OrderedText displayedOrderedText = OrderedText.EMPTY;
+	private int displayedCursorColumn = -1;
+	private int displayedCursorX;
 	private long editingTime;
 	private int tooltipTicks;
 	private long lastTick;
@@ -107,7 +129,9 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 	@Override
 	public void setText(String text) {
 		if (this.textPredicate.test(text)) {
+			this.discardInsert();
 			this.text = text;
+			this.history.clear();
 
 			this.setCursorToEnd();
 			this.selection.cancel();
@@ -146,6 +170,13 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 		return this.renderTextProvider;
 	}
 
+	/**
+	 * Sets the provider of the rendered text from the displayed slice of the text and the index of its first character.
+	 * <p>
+	 * The provider is only called again once the displayed slice changes.
+	 *
+	 * @param renderTextProvider the render text provider
+	 */
 	public void setRenderTextProvider(BiFunction<String, Integer, OrderedText> renderTextProvider) {
 		this.renderTextProvider = renderTextProvider;
 	}
@@ -194,6 +225,7 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 	}
 
 	private boolean onSelectionUpdate(Runnable action) {
+		this.history.breakMerging();
 		this.selection.tryStartSelection();
 		action.run();
 		this.selection.moveToCursor();
@@ -201,31 +233,89 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 		return true;
 	}
 
-	private void insertCharacter(char character) {
-		if (this.getText().isEmpty()) {
-			this.setText(String.valueOf(character));
-			return;
-		} else {
-			this.selection.erase();
+	/**
+	 * Replaces the text between the given offsets if the resulting text is accepted by the text predicate.
+	 *
+	 * @param start the start offset, inclusive
+	 * @param end the end offset, exclusive
+	 * @param text the replacement text
+	 * @return {@code true} if the text has been replaced, else {@code false}
+	 */
+	private boolean replace(int start, int end, String text) {
+		var newText = this.text.substring(0, start) + text + this.text.substring(end);
+		if (!this.textPredicate.test(newText))
+			return false;
+
+		this.history.record(start, this.text.substring(start, end), text);
+		this.text = newText;
+		this.onChanged();
+		return true;
+	}
+
+	/**
+	 * Returns the undo history of this text field.
+	 *
+	 * @return the undo history
+	 */
+	public UndoHistory getUndoHistory() {
+		return this.history;
+	}
+
+	/**
+	 * Reverts the last edit.
+	 *
+	 * @return {@code true} if an edit has been reverted, else {@code false}
+	 */
+	public boolean undo() {
+		if (this.isInserting())
+			return false;
+
+		var edits = this.history.undo();
+		if (edits.isEmpty())
+			return false;
+		for (int i = edits.size() - 1; i >= 0; i--) {
+			var edit = edits.get(i);
+			this.applyHistoryEdit(edit.offset(), edit.offset() + edit.inserted().length(), edit.removed());
 		}
+		return true;
+	}
 
-		if (character == '\n') {
-			return;
+	/**
+	 * Applies again the last reverted edit.
+	 *
+	 * @return {@code true} if an edit has been applied, else {@code false}
+	 */
+	public boolean redo() {
+		if (this.isInserting())
+			return false;
+
+		var edits = this.history.redo();
+		if (edits.isEmpty())
+			return false;
+		for (var edit : edits) {
+			this.applyHistoryEdit(edit.offset(), edit.offset() + edit.removed().length(), edit.inserted());
 		}
+		return true;
+	}
 
-		var text = this.getText();
-		int cursorPosition = this.cursor.getPosition();
+	private void applyHistoryEdit(int start, int end, String text) {
+		// The text was accepted by the predicate before, it does not need to be tested again.
+		this.text = this.text.substring(0, start) + text + this.text.substring(end);
+		this.selection.cancel();
+		this.cursor.setPosition(start + text.length());
+		this.sanitize();
+		this.onChanged();
+	}
 
-		String newText;
-		if (cursorPosition >= text.length()) {
-			newText = text + character;
-		} else {
-			newText = text.substring(0, cursorPosition) + character + text.substring(cursorPosition);
+	private void insertCharacter(char character) {
+		this.selection.erase();
+
+		if (character == '\n') {
+			return;
 		}
 
-		if (this.textPredicate.test(newText)) {
-			this.text = newText;
-			this.onChanged();
+		int cursorPosition = this.cursor.getPosition();
+		if (this.replace(cursorPosition, cursorPosition, String.valueOf(character))) {
 			this.cursor.moveRight();
 		}
 		this.sanitize();
@@ -240,12 +330,8 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 		if (this.cursor.column == 0)
 			return;
 
-		var text = this.getText();
 		int cursorPosition = this.cursor.getPosition();
-		var newText = text.substring(0, cursorPosition - 1) + text.substring(cursorPosition);
-		if (this.textPredicate.test(newText)) {
-			this.text = newText;
-			this.onChanged();
+		if (this.replace(cursorPosition - 1, cursorPosition, "")) {
 			this.cursor.moveLeft();
 		}
 		this.sanitize();
@@ -257,59 +343,86 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 			return;
 		}
 
-		if (this.getText().isEmpty()) {
+		if (this.cursor.column >= this.getText().length()) {
 			this.sanitize();
 			return;
 		}
 
-		if (this.cursor.column >= this.getText().length())
-			return;
-
-		var text = this.getText();
 		int cursorPosition = this.cursor.getPosition();
-
-		var newText = text.substring(0, cursorPosition) + text.substring(cursorPosition + 1);
-		if (this.textPredicate.test(newText)) {
-			this.text = newText;
-			this.onChanged();
-		}
+		this.replace(cursorPosition, cursorPosition + 1, "");
 		this.sanitize();
 	}
 
 	/**
 	 * Writes text where the cursor is.
+	 * <p>
+	 * Large texts are inserted over the next frames, which can be cancelled with the escape key.
+	 * The slices are then accumulated aside and the text is only replaced once the insertion ends,
+	 * so the text predicate is tested once against the whole result and the insertion is dropped if it is rejected.
 	 *
 	 * @param text the text to write
 	 */
 	public void write(String text) {
-		if (text.isEmpty())
+		if (text.isEmpty() || this.isInserting())
 			return;
 
-		if (this.getText().isEmpty()) {
-			this.setText(text);
-			this.setCursorToEnd();
-			return;
-		}
 		this.selection.erase();
 
-		var oldText = this.getText();
 		int position = this.cursor.getPosition();
-
-		String newText;
-		if (position >= oldText.length()) {
-			newText = oldText + text;
-		} else {
-			newText = oldText.substring(0, position) + text + oldText.substring(position);
-		}
-
-		if (this.textPredicate.test(newText)) {
-			this.text = newText;
-			this.onChanged();
+		if (text.length() > CHUNKED_INSERT_THRESHOLD) {
+			this.history.breakMerging();
+			this.insertedText = new StringBuilder(this.text.length() + text.length()).append(this.text, 0, position);
+			this.insertSuffix = this.text.substring(position);
+			this.startInsert(position, "", text);
+		} else if (this.replace(position, position, text)) {
 			this.cursor.move(text.length());
 		}
 		this.sanitize();
 	}
 
+	/**
+	 * Accumulates a slice of the inserted text, the text of this field is left untouched until the insertion ends.
+	 * <p>
+	 * Unlike a text area, a text field holds a single string which would be copied for each slice,
+	 * and its predicate can only judge the whole text.
+	 */
+	@Override
+	protected boolean insertChunk(int offset, String chunk) {
+		if (this.insertedText == null)
+			return false;
+		this.insertedText.append(chunk);
+		return true;
+	}
+
+	@Override
+	protected void endInsert(int start, String removed, String inserted, boolean cancelled) {
+		var insertedText = this.insertedText;
+		var suffix = this.insertSuffix;
+		this.insertedText = null;
+		this.insertSuffix = "";
+		if (cancelled || insertedText == null || inserted.isEmpty())
+			return;
+
+		var newText = insertedText.append(suffix).toString();
+		if (!this.textPredicate.test(newText))
+			return;
+
+		this.text = newText;
+		this.cursor.setPosition(start + inserted.length());
+		this.sanitize();
+		// The whole insertion is a single undo step.
+		this.history.record(start, removed, inserted);
+		this.history.breakMerging();
+		this.onChanged();
+	}
+
+	@Override
+	protected void discardInsert() {
+		super.discardInsert();
+		this.insertedText = null;
+		this.insertSuffix = "";
+	}
+
 	/* Navigation */
 
 	@Override
@@ -335,7 +448,7 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 		if (!this.isEditorActive() || !StringHelper.isValidChar(chr))
 			return false;
 
-		if (this.isActive()) {
+		if (this.isActive() && !this.isInserting()) {
 			this.insertCharacter(chr);
 			this.selection.cancel();
 		}
@@ -347,6 +460,12 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 		if (!this.isEditorActive())
 			return false;
 
+		if (this.isInserting()) {
+			if (keyCode == GLFW.GLFW_KEY_ESCAPE)
+				this.cancelInsert();
+			return true;
+		}
+
 		if (Screen.isSelectAll(keyCode)) {
 			this.selection.selectAll();
 			this.sanitize();
@@ -363,6 +482,13 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 				this.sanitize();
 			}
 			return true;
+		} else if (Screen.hasControlDown() && !Screen.hasAltDown()
+				&& (keyCode == GLFW.GLFW_KEY_Z || keyCode == GLFW.GLFW_KEY_Y)) {
+			if (this.isActive()) {
+				if (keyCode == GLFW.GLFW_KEY_Y || Screen.hasShiftDown()) this.redo();
+				else this.undo();
+			}
+			return true;
 		}
 
         return switch (keyCode) {
@@ -379,8 +505,10 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
                 yield true;
             }
             case GLFW.GLFW_KEY_D -> {
-                if (Screen.hasControlDown() && !this.text.isEmpty()) {
-                    this.setText("");
+                if (Screen.hasControlDown() && !this.text.isEmpty() && this.replace(0, this.text.length(), "")) {
+                    this.cursor.toStart();
+                    this.selection.cancel();
+                    this.sanitize();
                 }
                 yield true;
             }
@@ -396,10 +524,8 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 			this.setFocused(true);
 
 			this.onSelectionUpdate(() -> {
-				var displayedText = this.client.textRenderer.trimToWidth(this.text.substring(this.firstCharacterIndex),
-						this.getInnerWidth());
 				this.cursor.lastColumn = this.cursor.column = this.firstCharacterIndex
-						+ this.client.textRenderer.trimToWidth(displayedText, x).length();
+						+ this.client.textRenderer.trimToWidth(this.getDisplayedText(), x).length();
 			});
 
 			return true;
@@ -425,6 +551,49 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 		}
 	}
 
+	/**
+	 * Updates the displayed slice of the text if the text, the scroll, the width or the render text provider changed.
+	 */
+	private void updateDisplayedText() {
+		int width = this.getInnerWidth();
+		if (this.text == this.displayedSource && this.firstCharacterIndex == this.displayedFirstCharacter
+				&& width == this.displayedWidth && this.renderTextProvider == this.displayedProvider)
+			return;
+
+		this.displayedSource = this.text;
+		this.displayedFirstCharacter = this.firstCharacterIndex;
+		this.displayedWidth = width;
+		this.displayedProvider = this.renderTextProvider;
+		this.displayedText = this.client.textRenderer.trimToWidth(this.text.substring(this.firstCharacterIndex), width);
+		this.displayedOrderedText = this.renderTextProvider.apply(this.displayedText, this.firstCharacterIndex);
+		this.displayedCursorColumn = -1;
+	}
+
+	/**
+	 * Returns the slice of the text which fits in the text field.
+	 *
+	 * @return the displayed text
+	 */
+	private String getDisplayedText() {
+		this.updateDisplayedText();
+		return this.displayedText;
+	}
+
+	/**
+	 * Returns the X-offset of the cursor from the start of the displayed text.
+	 *
+	 * @return the X-offset
+	 */
+	private int getCursorOffset() {
+		this.updateDisplayedText();
+		if (this.cursor.column != this.displayedCursorColumn) {
+			this.displayedCursorColumn = this.cursor.column;
+			this.displayedCursorX = this.client.textRenderer.getWidth(
+					this.text.substring(this.firstCharacterIndex, this.cursor.column));
+		}
+		return this.displayedCursorX;
+	}
+
 	/**
 	 * Draws the text of the text area.
 	 *
@@ -435,12 +604,9 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 		int x = this.getX() + 4;
 		int y = this.getY() + this.getHeight() / 2 - 4;
 
-		var displayedText = this.client.textRenderer.trimToWidth(this.text.substring(this.firstCharacterIndex),
-				this.getInnerWidth());
-
-		drawContext.drawTextWithShadow(this.client.textRenderer, this.renderTextProvider.apply(displayedText, this.firstCharacterIndex),
-				x, y, textColor);
-		this.drawSelection(displayedText, y);
+		this.updateDisplayedText();
+		drawContext.drawTextWithShadow(this.client.textRenderer, this.displayedOrderedText, x, y, textColor);
+		this.drawSelection(this.displayedText, y);
 	}
 
 	/**
@@ -498,12 +664,9 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 
 		this.cursor.sanitize();
 
-		var cursorLine = this.text.substring(this.firstCharacterIndex);
-		int cursorX = this.getX() + 4 + this.client.textRenderer.getWidth(
-				cursorLine.substring(0, this.cursor.column - this.firstCharacterIndex)
-		);
+		int cursorX = this.getX() + 4 + this.getCursorOffset();
 
-		if (this.cursor.column - this.firstCharacterIndex < cursorLine.length())
+		if (this.cursor.column < this.text.length())
 			drawContext.fill(cursorX - 1, cursorY - 1, cursorX, cursorY + 9, ColorUtil.TEXT_COLOR);
 		else
 			drawContext.drawTextWithShadow(this.client.textRenderer, "_", cursorX, cursorY, ColorUtil.TEXT_COLOR);
@@ -603,6 +766,16 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 			return this.column;
 		}
 
+		/**
+		 * Moves the cursor to the given position in the text.
+		 *
+		 * @param position the position
+		 */
+		public void setPosition(int position) {
+			this.lastColumn = this.column = position;
+			this.sanitize();
+		}
+
 		@Override
 		public String toString() {
 			return "SpruceTextAreaWidget$Cursor{main=" + this.main
@@ -682,19 +855,7 @@ public class SpruceTextFieldWidget extends AbstractSpruceTextInputWidget impleme
 				return false;
 			}
 
-			if (start.column == 0 && end.column >= text.length()) {
-				text = "";
-				this.cancel();
-				return true;
-			}
-
-			var text = getText();
-			var newText = text.substring(0, start.getPosition()) + text.substring(end.getPosition());
-			if (SpruceTextFieldWidget.this.textPredicate.test(newText)) {
-				SpruceTextFieldWidget.this.text = newText;
-				SpruceTextFieldWidget.this.onChanged();
-			}
-
+			replace(start.getPosition(), end.getPosition(), "");
 			cursor.copy(start);
 
 			this.cancel();
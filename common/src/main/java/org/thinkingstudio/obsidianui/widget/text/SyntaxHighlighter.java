@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.widget.text;
+
+import net.minecraft.text.Style;
+
+/**
+ * Represents a line-based syntax highlighter for {@link SpruceTextAreaWidget}.
+ * <p>
+ * A highlighter is a lexer which carries a state from one line to the next, for example whether a multiline comment is open.
+ * Lines are highlighted again from the edited line only until the state at the start of a line equals
+ * the state this line previously started with, so states must implement {@link Object#equals(Object)}
+ * and should be immutable.
+ * <p>
+ * Highlighters are called off the client thread, and must not keep the state of a line between calls.
+ *
+ * @param <S> the type of the lexer state
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+public interface SyntaxHighlighter<S> {
+	/**
+	 * Returns the state at the start of the text.
+	 *
+	 * @return the initial state
+	 */
+	S getInitialState();
+
+	/**
+	 * Highlights the given line.
+	 *
+	 * @param line the line, without line separator
+	 * @param state the state at the start of the line
+	 * @param spans the consumer of the style spans of the line, which must be given in order and must not overlap
+	 * @return the state at the end of the line
+	 */
+	S highlightLine(String line, S state, SpanConsumer spans);
+
+	/**
+	 * Represents a consumer of style spans.
+	 */
+	@FunctionalInterface
+	interface SpanConsumer {
+		/**
+		 * Accepts a style span, the characters outside of any span use the text color of the text area.
+		 * <p>
+		 * The rows of a text area are measured without style, so the bold and the font of the style are ignored
+		 * as they would change the width of the characters. Colors and the other formattings are kept.
+		 *
+		 * @param start the start of the span in the line, inclusive
+		 * @param end the end of the span in the line, exclusive
+		 * @param style the style of the span
+		 */
+		void accept(int start, int end, Style style);
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.widget.text;
+
+import org.thinkingstudio.obsidianui.util.TextRope;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Represents a validator of the text of a {@link SpruceTextAreaWidget}, for example a script or JSON parser.
+ * <p>
+ * Validators run off the client thread once the text has not been edited for a while,
+ * a run is cancelled as soon as the text is edited again.
+ *
+ * @version 5.1.0
+ * @since 5.1.0
+ */
+@FunctionalInterface
+public interface TextValidator {
+	/**
+	 * Validates the given text.
+	 *
+	 * @param text the text, which never changes
+	 * @param cancelled the supplier of whether the run has been cancelled, long validations should check it regularly and return early
+	 * @return the diagnostics of the text
+	 */
+	List<Diagnostic> validate(TextRope text, BooleanSupplier cancelled);
+}
@@ -13,9 +13,20 @@ package org.thinkingstudio.obsidianui.fabric;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
+import net.fabricmc.fabric.api.resource.ResourceReloadListenerKeys;
+import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+import org.thinkingstudio.obsidianui.ObsidianUI;
 import org.thinkingstudio.obsidianui.fabric.event.OpenScreenCallback;
 import org.thinkingstudio.obsidianui.fabric.event.ResolutionChangeCallback;
 import org.thinkingstudio.obsidianui.hud.HudManager;
+import org.thinkingstudio.obsidianui.util.MultilineText;
+
+import java.util.Collection;
+import java.util.List;
 
 public class ObsidianUIFabric implements ClientModInitializer {
     @Override
@@ -36,5 +47,21 @@ public class ObsidianUIFabric implements ClientModInitializer {
         });
         OpenScreenCallback.POST.register((client, screen) -> HudManager.initAll(client, client.getWindow().getScaledWidth(), client.getWindow().getScaledHeight()));
         ResolutionChangeCallback.EVENT.register(client -> HudManager.initAll(client, client.getWindow().getScaledWidth(), client.getWindow().getScaledHeight()));
+        ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES).registerReloadListener(new SimpleSynchronousResourceReloadListener() {
+            @Override
+            public Identifier getFabricId() {
+                return Identifier.of(ObsidianUI.MODID, "fonts");
+            }
+
+            @Override
+            public Collection<Identifier> getFabricDependencies() {
+                return List.of(ResourceReloadListenerKeys.FONTS);
+            }
+
+            @Override
+            public void reload(ResourceManager manager) {
+                MultilineText.onFontsChanged();
+            }
+        });
     }
 }
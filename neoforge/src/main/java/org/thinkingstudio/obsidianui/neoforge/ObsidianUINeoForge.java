@@ -11,25 +11,31 @@
 package org.thinkingstudio.obsidianui.neoforge;
 
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.resource.SynchronousResourceReloader;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.EventPriority;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.fml.loading.FMLLoader;
 import net.neoforged.neoforge.client.event.ClientTickEvent;
+import net.neoforged.neoforge.client.event.RegisterClientReloadListenersEvent;
 import net.neoforged.neoforge.client.event.RenderGuiEvent;
 import net.neoforged.neoforge.common.NeoForge;
 import org.thinkingstudio.obsidianui.ObsidianUI;
 import org.thinkingstudio.obsidianui.hud.HudManager;
 import org.thinkingstudio.obsidianui.neoforge.event.OpenScreenCallbackEvent;
 import org.thinkingstudio.obsidianui.neoforge.event.ResolutionChangeCallbackEvent;
+import org.thinkingstudio.obsidianui.util.MultilineText;
 
 @Mod(value = ObsidianUI.MODID, dist = Dist.CLIENT)
 public class ObsidianUINeoForge {
-    public ObsidianUINeoForge() {
+    public ObsidianUINeoForge(IEventBus modEventBus) {
         IEventBus forgeEventBus = NeoForge.EVENT_BUS;
 
         if (FMLLoader.getDist().isClient()) {
+            // Registered after the vanilla reloaders, so the fonts are reloaded first.
+            modEventBus.addListener(RegisterClientReloadListenersEvent.class, event ->
+                    event.registerReloadListener((SynchronousResourceReloader) manager -> MultilineText.onFontsChanged()));
             forgeEventBus.addListener(EventPriority.HIGHEST, RenderGuiEvent.Post.class, event -> {
                 var drawContext = event.getGuiGraphics();
                 var tickDelta = event.getPartialTick();
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2020~2024 LambdAurora <email@lambdaurora.dev>
+ * Copyright © 2024 ThinkingStudio
+ *
+ * This file is part of ObsidianUI.
+ *
+ * Licensed under the MIT license. For more information,
+ * see the LICENSE file.
+ */
+
+package org.thinkingstudio.obsidianui.test.fabric.gui;
+
+import org.thinkingstudio.obsidianui.Position;
+import org.thinkingstudio.obsidianui.SpruceTexts;
+import org.thinkingstudio.obsidianui.screen.SpruceScreen;
+import org.thinkingstudio.obsidianui.widget.SpruceButtonWidget;
+import org.thinkingstudio.obsidianui.widget.container.SpruceContainerWidget;
+import org.thinkingstudio.obsidianui.widget.container.SpruceVirtualListWidget;
+import org.thinkingstudio.obsidianui.widget.text.Diagnostic;
+import org.thinkingstudio.obsidianui.widget.text.SpruceTextAreaWidget;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * Represents a screen to test the hit-test grid of containers, the virtualized list,
+ * and the chunked insertion, multiple cursors and diagnostics of the text area.
+ */
+public class SpruceFeaturesTestScreen extends SpruceScreen {
+	private static final int GRID_BUTTONS = 400;
+	private static final int LIST_ITEMS = 100_000;
+	private static final int PASTE_LINES = 50_000;
+	private static final int MAX_LINE_LENGTH = 40;
+
+	private final Screen parent;
+
+	public SpruceFeaturesTestScreen(@Nullable Screen parent) {
+		super(Text.literal("ObsidianUI Test Features Menu"));
+		this.parent = parent;
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+
+		int halfWidth = this.width / 2;
+		int topHeight = (this.height - 60) / 2;
+
+		// Many small children, the hovered one is found through the hit-test grid of the container.
+		var grid = new SpruceContainerWidget(Position.of(this, 10, 25), halfWidth - 15, topHeight);
+		int columns = Math.max(1, (halfWidth - 15) / 22);
+		for (int i = 0; i < GRID_BUTTONS; i++) {
+			int x = (i % columns) * 22;
+			int y = (i / columns) * 14;
+			if (y + 12 > topHeight)
+				break;
+			grid.addChild(new SpruceButtonWidget(Position.of(x, y), 20, 12, Text.literal(String.valueOf(i)), btn -> {
+			}));
+		}
+		this.addDrawableChild(grid);
+
+		// A virtualized list only holds the rows filling its viewport.
+		var list = new SpruceVirtualListWidget<>(Position.of(this, halfWidth + 5, 25), halfWidth - 15, topHeight, 20,
+				SpruceButtonWidget.class,
+				(position, width, height) -> new SpruceButtonWidget(position, width, height, Text.empty(), btn -> {
+				}),
+				new SpruceVirtualListWidget.DataSource<>() {
+					@Override
+					public int size() {
+						return LIST_ITEMS;
+					}
+
+					@Override
+					public void bind(int index, SpruceButtonWidget row) {
+						row.setMessage(Text.literal("Item " + index));
+					}
+				});
+		this.addDrawableChild(list);
+
+		int textAreaY = 25 + topHeight + 5;
+		var textArea = new SpruceTextAreaWidget(Position.of(this, 10, textAreaY), this.width - 20, this.height - textAreaY - 30,
+				Text.literal("Text Area"));
+		textArea.setText("Lines longer than " + MAX_LINE_LENGTH + " characters are reported, and TODO is reported as an error.\n"
+				+ "TODO: paste a large text, then add a cursor on each line and type.");
+		textArea.setValidator((text, cancelled) -> {
+			var diagnostics = new ArrayList<Diagnostic>();
+			var lines = text.lines(0);
+			for (int line = 0; lines.hasNext() && !cancelled.getAsBoolean(); line++) {
+				var content = lines.next();
+				int todo = content.indexOf("TODO");
+				if (todo != -1)
+					diagnostics.add(new Diagnostic(line, todo, todo + 4, Diagnostic.Severity.ERROR, Text.literal("Unresolved TODO")));
+				if (content.length() > MAX_LINE_LENGTH)
+					diagnostics.add(new Diagnostic(line, MAX_LINE_LENGTH, content.length(), Diagnostic.Severity.WARNING,
+							Text.literal("Line longer than " + MAX_LINE_LENGTH + " characters")));
+			}
+			return diagnostics;
+		});
+		this.addDrawableChild(textArea);
+
+		int buttonY = this.height - 25;
+		this.addDrawableChild(new SpruceButtonWidget(Position.of(this, halfWidth - 230, buttonY), 150, 20, Text.literal("Paste large text"),
+				btn -> {
+					var builder = new StringBuilder();
+					for (int i = 0; i < PASTE_LINES; i++) {
+						builder.append("Pasted line ").append(i).append('\n');
+					}
+					textArea.setFocused(true);
+					textArea.write(builder.toString());
+				}));
+		this.addDrawableChild(new SpruceButtonWidget(Position.of(this, halfWidth - 75, buttonY), 150, 20, Text.literal("Cursor on each line"),
+				btn -> {
+					var text = textArea.getText();
+					textArea.setCursorToStart();
+					for (int i = text.indexOf('\n'), count = 0; i != -1 && count < 100; i = text.indexOf('\n', i + 1), count++) {
+						textArea.addCursor(i + 1);
+					}
+					textArea.setFocused(true);
+				}));
+		this.addDrawableChild(new SpruceButtonWidget(Position.of(this, halfWidth + 80, buttonY), 150, 20, SpruceTexts.GUI_DONE,
+				btn -> this.client.setScreen(this.parent)));
+	}
+
+	@Override
+	public void renderTitle(DrawContext drawContext, int mouseX, int mouseY, float delta) {
+		drawContext.drawCenteredTextWithShadow(this.textRenderer, this.title, this.width / 2, 8, 16777215);
+	}
+}
@@ -43,6 +43,8 @@ public class SpruceMainMenuScreen extends SpruceScreen {
 				btn -> this.client.setScreen(new SpruceTextAreaScreen(this))));
 		this.addDrawableChild(new SpruceButtonWidget(Position.of(this, this.width / 2 - 100, startY += 25), 200, 20, Text.literal("Tabbed Screen Test"),
 				btn -> this.client.setScreen(new SpruceTabbedTestScreen(this))));
+		this.addDrawableChild(new SpruceButtonWidget(Position.of(this, this.width / 2 - 100, startY += 25), 200, 20, Text.literal("Features Test"),
+				btn -> this.client.setScreen(new SpruceFeaturesTestScreen(this))));
 
 		// Add done button.
 		this.addDrawableChild(new SpruceButtonWidget(Position.of(this, this.width / 2 - 75, this.height - 29), 150, 20, SpruceTexts.GUI_DONE,